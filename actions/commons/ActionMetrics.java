@@ -0,0 +1,334 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Duration histograms of the BasePage actions, per action and per action and
+ * locator. Recording only costs two clock reads, two map lookups and a few
+ * LongAdder increments, and nothing at all when ACTION_METRICS_ENABLED is
+ * false.
+ *
+ * Actions call each other, and every one of them is recorded: the waits and
+ * finds of enterToTextboxByID show up next to enterToTextboxByID itself. The
+ * self time of an action is its duration minus the actions it called, so the
+ * time spent in a composite helper is not counted twice.
+ *
+ * <pre>
+ * try (Timer ignored = ActionMetrics.time("click", locator)) {
+ * 	getElement(driver, locator).click();
+ * }
+ * </pre>
+ */
+public final class ActionMetrics {
+	private ActionMetrics() {
+	}
+
+	/**
+	 * Start timing an action of the current thread, until the timer is closed.
+	 * The timer of a thread is reused, so timing allocates nothing.
+	 *
+	 * @param action  action name, such as "click" or "wait"
+	 * @param locator locator of the element, or null
+	 * @return the timer to close when the action is done
+	 */
+	public static Timer time(String action, String locator) {
+		if (!ENABLED) {
+			return DISABLED;
+		}
+		Timer timer = timers.get();
+		timer.push(action, locator);
+		return timer;
+	}
+
+	/**
+	 * @return statistics of every action, slowest first
+	 */
+	public static List<Stat> getActionStats() {
+		List<Stat> stats = new ArrayList<Stat>();
+		for (Map.Entry<String, Histogram> entry : byAction.entrySet()) {
+			stats.add(entry.getValue().toStat(entry.getKey(), null));
+		}
+		Collections.sort(stats, SLOWEST_FIRST);
+		return stats;
+	}
+
+	/**
+	 * @return statistics of every action and locator, slowest first
+	 */
+	public static List<Stat> getLocatorStats() {
+		List<Stat> stats = new ArrayList<Stat>();
+		for (Map.Entry<String, ConcurrentMap<String, Histogram>> action : byLocator.entrySet()) {
+			for (Map.Entry<String, Histogram> entry : action.getValue().entrySet()) {
+				stats.add(entry.getValue().toStat(action.getKey(), entry.getKey()));
+			}
+		}
+		Collections.sort(stats, SLOWEST_FIRST);
+		return stats;
+	}
+
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	public static void clear() {
+		byAction.clear();
+		byLocator.clear();
+	}
+
+	/**
+	 * Statistics of an action, or of an action on one locator. Durations are in
+	 * microseconds; percentiles are the upper bound of their histogram bucket.
+	 */
+	public static final class Stat {
+		Stat(String action, String locator, long count, long totalMicros, long selfMicros, long maxMicros,
+				long p50Micros, long p95Micros, long p99Micros) {
+			this.action = action;
+			this.locator = locator;
+			this.count = count;
+			this.totalMicros = totalMicros;
+			this.selfMicros = selfMicros;
+			this.maxMicros = maxMicros;
+			this.p50Micros = p50Micros;
+			this.p95Micros = p95Micros;
+			this.p99Micros = p99Micros;
+		}
+
+		public String getAction() {
+			return action;
+		}
+
+		public String getLocator() {
+			return locator;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getTotalMicros() {
+			return totalMicros;
+		}
+
+		public long getMeanMicros() {
+			return count == 0 ? 0 : totalMicros / count;
+		}
+
+		/**
+		 * @return total time of the action minus the actions it called
+		 */
+		public long getSelfMicros() {
+			return selfMicros;
+		}
+
+		public long getMeanSelfMicros() {
+			return count == 0 ? 0 : selfMicros / count;
+		}
+
+		public long getMaxMicros() {
+			return maxMicros;
+		}
+
+		public long getP50Micros() {
+			return p50Micros;
+		}
+
+		public long getP95Micros() {
+			return p95Micros;
+		}
+
+		public long getP99Micros() {
+			return p99Micros;
+		}
+
+		@Override
+		public String toString() {
+			return action + (locator == null ? "" : " " + locator) + ": count=" + count + ", mean=" + getMeanMicros()
+					+ "us, meanSelf=" + getMeanSelfMicros() + "us, p95=" + p95Micros + "us, max=" + maxMicros + "us";
+		}
+
+		private final String action;
+		private final String locator;
+		private final long count;
+		private final long totalMicros;
+		private final long selfMicros;
+		private final long maxMicros;
+		private final long p50Micros;
+		private final long p95Micros;
+		private final long p99Micros;
+	}
+
+	/**
+	 * Stack of the actions running on a thread. Closing the timer records the
+	 * innermost one.
+	 */
+	public static final class Timer implements AutoCloseable {
+		private Timer() {
+		}
+
+		private void push(String action, String locator) {
+			if (depth == actions.length) {
+				grow();
+			}
+			actions[depth] = action;
+			locators[depth] = locator;
+			childNanos[depth] = 0;
+			starts[depth] = System.nanoTime();
+			depth++;
+		}
+
+		@Override
+		public void close() {
+			if (depth == 0) {
+				// the disabled timer, or closed twice
+				return;
+			}
+			long nanos = System.nanoTime() - starts[--depth];
+			long selfNanos = nanos - childNanos[depth];
+			if (depth > 0) {
+				childNanos[depth - 1] += nanos;
+			}
+			record(actions[depth], locators[depth], nanos, selfNanos);
+			actions[depth] = null;
+			locators[depth] = null;
+		}
+
+		private void grow() {
+			int size = actions.length * 2;
+			actions = Arrays.copyOf(actions, size);
+			locators = Arrays.copyOf(locators, size);
+			starts = Arrays.copyOf(starts, size);
+			childNanos = Arrays.copyOf(childNanos, size);
+		}
+
+		private String[] actions = new String[8];
+		private String[] locators = new String[8];
+		private long[] starts = new long[8];
+		// time spent in the actions called by each running action
+		private long[] childNanos = new long[8];
+		private int depth;
+	}
+
+	/**
+	 * Lock-free histogram with power of two buckets of microseconds
+	 */
+	private static final class Histogram {
+		Histogram() {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		void record(long nanos, long selfNanos) {
+			long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+			buckets[Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+			totalMicros.add(micros);
+			selfMicros.add(TimeUnit.NANOSECONDS.toMicros(selfNanos));
+			maxMicros.accumulate(micros);
+		}
+
+		Stat toStat(String action, String locator) {
+			long[] counts = new long[BUCKET_COUNT];
+			long total = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				counts[i] = buckets[i].sum();
+				total += counts[i];
+			}
+			long max = maxMicros.get();
+			return new Stat(action, locator, total, totalMicros.sum(), selfMicros.sum(), max,
+					percentile(counts, total, 0.50, max), percentile(counts, total, 0.95, max),
+					percentile(counts, total, 0.99, max));
+		}
+
+		private static long percentile(long[] counts, long total, double quantile, long max) {
+			long rank = (long) Math.ceil(total * quantile);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank && seen > 0) {
+					// bucket i holds [2^(i-1), 2^i - 1] microseconds
+					return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+				}
+			}
+			return max;
+		}
+
+		private static final int BUCKET_COUNT = 40;
+		private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+		private final LongAdder totalMicros = new LongAdder();
+		private final LongAdder selfMicros = new LongAdder();
+		private final LongAccumulator maxMicros = new LongAccumulator(MAX, 0);
+	}
+
+	private static void record(String action, String locator, long nanos, long selfNanos) {
+		getHistogram(byAction, action).record(nanos, selfNanos);
+		if (locator != null) {
+			ConcurrentMap<String, Histogram> locators = byLocator.get(action);
+			if (locators == null) {
+				locators = byLocator.computeIfAbsent(action, NEW_LOCATOR_MAP);
+			}
+			getHistogram(locators, locator).record(nanos, selfNanos);
+		}
+	}
+
+	private static Histogram getHistogram(ConcurrentMap<String, Histogram> histograms, String key) {
+		Histogram histogram = histograms.get(key);
+		if (histogram == null) {
+			histogram = histograms.computeIfAbsent(key, NEW_HISTOGRAM);
+		}
+		return histogram;
+	}
+
+	private static final Function<String, Histogram> NEW_HISTOGRAM = new Function<String, Histogram>() {
+		@Override
+		public Histogram apply(String key) {
+			return new Histogram();
+		}
+	};
+
+	private static final Function<String, ConcurrentMap<String, Histogram>> NEW_LOCATOR_MAP = new Function<String, ConcurrentMap<String, Histogram>>() {
+		@Override
+		public ConcurrentMap<String, Histogram> apply(String key) {
+			return new ConcurrentHashMap<String, Histogram>();
+		}
+	};
+
+	private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+		@Override
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	};
+
+	private static final Comparator<Stat> SLOWEST_FIRST = new Comparator<Stat>() {
+		@Override
+		public int compare(Stat first, Stat second) {
+			int byP95 = Long.compare(second.getP95Micros(), first.getP95Micros());
+			return byP95 != 0 ? byP95 : Long.compare(second.getMaxMicros(), first.getMaxMicros());
+		}
+	};
+
+	private static final boolean ENABLED = GlobalConstants.ACTION_METRICS_ENABLED;
+	private static final Timer DISABLED = new Timer();
+
+	private static final ThreadLocal<Timer> timers = new ThreadLocal<Timer>() {
+		@Override
+		protected Timer initialValue() {
+			return new Timer();
+		}
+	};
+
+	private static final ConcurrentMap<String, Histogram> byAction = new ConcurrentHashMap<String, Histogram>();
+	private static final ConcurrentMap<String, ConcurrentMap<String, Histogram>> byLocator = new ConcurrentHashMap<String, ConcurrentMap<String, Histogram>>();
+}
@@ -0,0 +1,95 @@
+package commons;
+
+import commons.ActionMetrics.Timer;
+
+/**
+ * Measures what {@link ActionMetrics} adds to a BasePage action: time per
+ * action for an action on a locator, and for an action with a nested one, like
+ * clickToElement calling getElement, both recorded. The budget is 1
+ * microsecond per action; the exit status is 1 when a measure is over it.
+ *
+ * <pre>
+ * java commons.ActionMetricsBenchmark [actions] [threads]
+ * java commons.ActionMetricsBenchmark 5000000 4
+ * </pre>
+ *
+ * ACTION_METRICS_ENABLED is a constant, so the disabled path (time returns a
+ * timer that does nothing) is removed by the JIT and is not measured here. JMH
+ * is not among the libraries of the project, so each measure is preceded by a
+ * warm-up of the same length.
+ */
+public class ActionMetricsBenchmark {
+
+	public static void main(String[] args) throws InterruptedException {
+		final int actions = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		if (!ActionMetrics.isEnabled()) {
+			System.out.println("ACTION_METRICS_ENABLED is false, nothing is recorded");
+			return;
+		}
+
+		boolean overBudget = false;
+		System.out.println(String.format("%-18s %8s %10s", "Action", "Threads", "ns/action"));
+		for (int count : new int[] { 1, threads }) {
+			for (final boolean nested : new boolean[] { false, true }) {
+				run(nested, actions, count);
+				// the nested measure records two actions per iteration
+				double nanos = (double) run(nested, actions, count) / actions / (nested ? 2 : 1);
+				overBudget |= nanos > BUDGET_NANOS;
+				System.out.println(
+						String.format("%-18s %8d %10.1f", nested ? "action+nested" : "action", count, nanos));
+			}
+		}
+		ActionMetrics.clear();
+		System.out.println(overBudget ? "over the budget of " + BUDGET_NANOS + " ns per action"
+				: "within the budget of " + BUDGET_NANOS + " ns per action");
+		if (overBudget) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @return mean nanoseconds of a thread for the actions
+	 */
+	private static long run(final boolean nested, final int actions, int threads) throws InterruptedException {
+		final long[] results = new long[threads];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int index = t;
+			workers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					results[index] = measure(nested, actions);
+				}
+			});
+			workers[t].start();
+		}
+		long nanos = 0;
+		for (int t = 0; t < threads; t++) {
+			workers[t].join();
+			nanos += results[t];
+		}
+		return nanos / threads;
+	}
+
+	@SuppressWarnings("try")
+	private static long measure(boolean nested, int actions) {
+		long start = System.nanoTime();
+		for (int i = 0; i < actions; i++) {
+			String locator = LOCATORS[i & (LOCATORS.length - 1)];
+			try (Timer ignored = ActionMetrics.time("clickToElement", locator)) {
+				if (nested) {
+					ActionMetrics.time("getElement", locator).close();
+				}
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static final long BUDGET_NANOS = 1000;
+
+	// a power of two, for the index mask
+	private static final String[] LOCATORS = { "//input[@id='firstName']", "//input[@id='lastName']",
+			"//button[text()='Save']", "//select[@name='status']", "//a[text()='Employee List']",
+			"//input[@id='employeeId']", "//span[text()='Required']", "//div[@class='orangehrm-card']" };
+}
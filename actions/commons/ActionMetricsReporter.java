@@ -0,0 +1,130 @@
+package commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.IReporter;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.Reporter;
+import org.testng.xml.XmlSuite;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Reports the BasePage action metrics:
+ * <ul>
+ * <li>the slowest actions and locators as a table in the Reporter output of the
+ * TestNG report, when the last running suite finishes. Actions include the
+ * actions they call; the self time does not.</li>
+ * <li>action-metrics.json and action-metrics.csv in the TestNG output folder,
+ * every action and locator</li>
+ * </ul>
+ */
+public class ActionMetricsReporter implements IReporter, ISuiteListener {
+
+	@Override
+	public void onStart(ISuite suite) {
+		runningSuites.incrementAndGet();
+	}
+
+	@Override
+	public void onFinish(ISuite suite) {
+		// the matrix runs several suites at once: report after the last one
+		if (runningSuites.decrementAndGet() > 0 || !ActionMetrics.isEnabled()) {
+			return;
+		}
+		List<ActionMetrics.Stat> locators = ActionMetrics.getLocatorStats();
+		StringBuilder html = new StringBuilder("<h2>Actions</h2>");
+		appendTable(html, ActionMetrics.getActionStats());
+		html.append("<h2>Slowest locators</h2>");
+		appendTable(html, locators.subList(0, Math.min(GlobalConstants.ACTION_METRICS_REPORT_ROWS, locators.size())));
+		// the suite output, not the last test of this thread
+		Reporter.setCurrentTestResult(null);
+		Reporter.log(html.toString());
+	}
+
+	@Override
+	public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+		if (!ActionMetrics.isEnabled()) {
+			return;
+		}
+		List<ActionMetrics.Stat> actions = ActionMetrics.getActionStats();
+		List<ActionMetrics.Stat> locators = ActionMetrics.getLocatorStats();
+		try {
+			Files.createDirectories(new File(outputDirectory).toPath());
+			writeJson(new File(outputDirectory, "action-metrics.json"), actions, locators);
+			writeCsv(new File(outputDirectory, "action-metrics.csv"), actions, locators);
+		} catch (IOException e) {
+			log.info("Action metrics can not be written: " + e.getMessage());
+		}
+		for (int i = 0; i < Math.min(5, locators.size()); i++) {
+			log.info("Slow action " + locators.get(i));
+		}
+	}
+
+	private void writeJson(File file, List<ActionMetrics.Stat> actions, List<ActionMetrics.Stat> locators)
+			throws IOException {
+		Map<String, List<ActionMetrics.Stat>> metrics = new LinkedHashMap<String, List<ActionMetrics.Stat>>();
+		metrics.put("actions", actions);
+		metrics.put("locators", locators);
+		Gson gson = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			gson.toJson(metrics, writer);
+		}
+	}
+
+	private void writeCsv(File file, List<ActionMetrics.Stat> actions, List<ActionMetrics.Stat> locators)
+			throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(
+					"action,locator,count,totalMicros,selfMicros,meanMicros,p50Micros,p95Micros,p99Micros,maxMicros\n");
+			for (ActionMetrics.Stat stat : actions) {
+				writeCsvRow(writer, stat);
+			}
+			for (ActionMetrics.Stat stat : locators) {
+				writeCsvRow(writer, stat);
+			}
+		}
+	}
+
+	private void writeCsvRow(Writer writer, ActionMetrics.Stat stat) throws IOException {
+		String locator = stat.getLocator() == null ? "" : "\"" + stat.getLocator().replace("\"", "\"\"") + "\"";
+		writer.write(stat.getAction() + "," + locator + "," + stat.getCount() + "," + stat.getTotalMicros() + ","
+				+ stat.getSelfMicros() + "," + stat.getMeanMicros() + "," + stat.getP50Micros() + ","
+				+ stat.getP95Micros() + "," + stat.getP99Micros() + "," + stat.getMaxMicros() + "\n");
+	}
+
+	private void appendTable(StringBuilder html, List<ActionMetrics.Stat> stats) {
+		html.append("<table border=\"1\"><tr><th>Action</th><th>Locator</th><th>Count</th><th>Total (ms)</th>")
+				.append("<th>Self (ms)</th><th>Mean (&micro;s)</th><th>p50 (&micro;s)</th><th>p95 (&micro;s)</th>")
+				.append("<th>p99 (&micro;s)</th><th>Max (&micro;s)</th></tr>");
+		for (ActionMetrics.Stat stat : stats) {
+			html.append("<tr><td>").append(stat.getAction()).append("</td><td>")
+					.append(stat.getLocator() == null ? "" : escape(stat.getLocator())).append("</td><td>")
+					.append(stat.getCount()).append("</td><td>").append(stat.getTotalMicros() / 1000)
+					.append("</td><td>").append(stat.getSelfMicros() / 1000).append("</td><td>")
+					.append(stat.getMeanMicros()).append("</td><td>").append(stat.getP50Micros()).append("</td><td>")
+					.append(stat.getP95Micros()).append("</td><td>").append(stat.getP99Micros()).append("</td><td>")
+					.append(stat.getMaxMicros()).append("</td></tr>");
+		}
+		html.append("</table>");
+	}
+
+	private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+	private static final Log log = LogFactory.getLog(ActionMetricsReporter.class);
+	private static final AtomicInteger runningSuites = new AtomicInteger();
+}
@@ -3,23 +3,27 @@ package commons;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 import org.openqa.selenium.Alert;
 import org.openqa.selenium.By;
 import org.openqa.selenium.Cookie;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.Keys;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.Select;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
+import commons.ActionMetrics.Timer;
+import commons.TimeoutManager.TimeoutScope;
+import commons.WaitFactory.WaitProfile;
 import pageUIs.commons.BasePageUI;
 
+// action timers and timeout scopes are resources that the try body does not use
+@SuppressWarnings("try")
 public class BasePage {
 	public static BasePage getBasePage() {
 		return new BasePage();
@@ -34,7 +38,11 @@ public class BasePage {
 	 * @param pageUrl URL of page need to load
 	 */
 	public void openPageUrl(WebDriver driver, String pageUrl) {
-		driver.get(pageUrl);
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("openPageUrl", null)) {
+			driver.get(pageUrl);
+		}
+		PageLoadStats.record(driver);
 	}
 
 	/**
@@ -45,7 +53,9 @@ public class BasePage {
 	 *         stripped, or null if one is not already set
 	 */
 	public String getPageTitle(WebDriver driver) {
-		return driver.getTitle();
+		try (Timer ignored = ActionMetrics.time("getPageTitle", null)) {
+			return driver.getTitle();
+		}
 	}
 
 	/**
@@ -55,7 +65,9 @@ public class BasePage {
 	 * @return The URL of the page currently loaded in the browser
 	 */
 	public String getPageUrl(WebDriver driver) {
-		return driver.getCurrentUrl();
+		try (Timer ignored = ActionMetrics.time("getPageUrl", null)) {
+			return driver.getCurrentUrl();
+		}
 	}
 
 	/**
@@ -72,7 +84,9 @@ public class BasePage {
 	 * @return The source of the current page
 	 */
 	public String getPageSource(WebDriver driver) {
-		return driver.getPageSource();
+		try (Timer ignored = ActionMetrics.time("getPageSource", null)) {
+			return driver.getPageSource();
+		}
 	}
 
 	/**
@@ -82,8 +96,11 @@ public class BasePage {
 	 * @return The alert popup is present in page
 	 */
 	public Alert waitForAlertPresence(WebDriver driver) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		return explicitWait.until(ExpectedConditions.alertIsPresent());
+		try (Timer ignored = ActionMetrics.time("waitForAlertPresence", null)) {
+			return WaitFactory.untilBrowserState(driver, WaitProfile.SHORT, ExpectedConditions.alertIsPresent());
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -92,8 +109,11 @@ public class BasePage {
 	 * @param driver
 	 */
 	public void acceptAlert(WebDriver driver) {
-		alert = waitForAlertPresence(driver);
-		alert.accept();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("acceptAlert", null)) {
+			Alert alert = waitForAlertPresence(driver);
+			alert.accept();
+		}
 	}
 
 	/**
@@ -102,8 +122,11 @@ public class BasePage {
 	 * @param driver
 	 */
 	public void cancelAlert(WebDriver driver) {
-		alert = waitForAlertPresence(driver);
-		alert.dismiss();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("cancelAlert", null)) {
+			Alert alert = waitForAlertPresence(driver);
+			alert.dismiss();
+		}
 	}
 
 	/**
@@ -113,8 +136,11 @@ public class BasePage {
 	 * @param key
 	 */
 	public void sendkeyToAlert(WebDriver driver, String key) {
-		alert = waitForAlertPresence(driver);
-		alert.sendKeys(key);
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("sendkeyToAlert", null)) {
+			Alert alert = waitForAlertPresence(driver);
+			alert.sendKeys(key);
+		}
 	}
 
 	/**
@@ -124,8 +150,10 @@ public class BasePage {
 	 * @return
 	 */
 	public String getAlertText(WebDriver driver) {
-		alert = waitForAlertPresence(driver);
-		return alert.getText();
+		try (Timer ignored = ActionMetrics.time("getAlertText", null)) {
+			Alert alert = waitForAlertPresence(driver);
+			return alert.getText();
+		}
 	}
 
 	/**
@@ -136,11 +164,14 @@ public class BasePage {
 	 * @param parentID The ID of current window
 	 */
 	public void switchToWindowByID(WebDriver driver, String parentID) {
-		Set<String> allWindows = driver.getWindowHandles();
-		for (String runWindow : allWindows) {
-			if (!runWindow.equals(parentID)) {
-				driver.switchTo().window(runWindow);
-				break;
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("switchToWindowByID", null)) {
+			Set<String> allWindows = driver.getWindowHandles();
+			for (String runWindow : allWindows) {
+				if (!runWindow.equals(parentID)) {
+					driver.switchTo().window(runWindow);
+					break;
+				}
 			}
 		}
 	}
@@ -148,19 +179,18 @@ public class BasePage {
 	/**
 	 * 
 	 * Switch the focus of future commands for this driver to the window with the
-	 * given ID handle.
+	 * given title. Titles are kept by the {@link WindowRegistry}, so only new
+	 * windows are visited. When no window has the title, the focus stays on the
+	 * current window.
 	 * 
 	 * @param driver
-	 * @param title  The title of current window
+	 * @param title  The title of the window to switch to
+	 * @return false if no window has the title
 	 */
-	public void switchToWindowByTitle(WebDriver driver, String title) {
-		Set<String> allWindows = driver.getWindowHandles();
-		for (String runWindows : allWindows) {
-			driver.switchTo().window(runWindows);
-			String currentWin = driver.getTitle();
-			if (currentWin.equals(title)) {
-				break;
-			}
+	public boolean switchToWindowByTitle(WebDriver driver, String title) {
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("switchToWindowByTitle", null)) {
+			return WindowRegistry.forDriver(driver).switchToTitle(title);
 		}
 	}
 
@@ -170,14 +200,25 @@ public class BasePage {
 	 * @param parentID
 	 */
 	public void closeAllWindowsWithoutParent(WebDriver driver, String parentID) {
-		Set<String> allWindows = driver.getWindowHandles();
-		for (String runWindows : allWindows) {
-			if (!runWindows.equals(parentID)) {
-				driver.switchTo().window(runWindows);
-				driver.close();
-			}
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("closeAllWindowsWithoutParent", null)) {
+			WindowRegistry.forDriver(driver).closeAllExcept(parentID);
+		}
+	}
+
+	/**
+	 * Wait for a window opened by the last action
+	 * 
+	 * @param driver
+	 * @param knownHandles window handles read before the action
+	 * @return the handle of the new window
+	 */
+	public String waitForNewWindow(WebDriver driver, Set<String> knownHandles) {
+		try (Timer ignored = ActionMetrics.time("waitForNewWindow", null)) {
+			return WindowRegistry.forDriver(driver).waitForNewWindow(knownHandles);
+		} finally {
+			invalidateSnapshot();
 		}
-		driver.switchTo().window(parentID);
 	}
 
 	/**
@@ -186,7 +227,10 @@ public class BasePage {
 	 * @param driver
 	 */
 	public void backToPage(WebDriver driver) {
-		driver.navigate().back();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("backToPage", null)) {
+			driver.navigate().back();
+		}
 	}
 
 	/**
@@ -195,7 +239,10 @@ public class BasePage {
 	 * @param driver
 	 */
 	public void refreshCurrentPage(WebDriver driver) {
-		driver.navigate().refresh();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("refreshCurrentPage", null)) {
+			driver.navigate().refresh();
+		}
 	}
 
 	/**
@@ -205,7 +252,10 @@ public class BasePage {
 	 * @param driver
 	 */
 	public void forwardToPage(WebDriver driver) {
-		driver.navigate().forward();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("forwardToPage", null)) {
+			driver.navigate().forward();
+		}
 	}
 
 	/**
@@ -214,7 +264,17 @@ public class BasePage {
 	 * @return A By which locates elements via XPath.
 	 */
 	public By getByXpath(String locator) {
-		return By.xpath(locator);
+		return LocatorCache.getLocatorCache().getBy(locator);
+	}
+
+	/**
+	 * 
+	 * @param locator The XPath template to use.
+	 * @param params
+	 * @return A By which locates elements via the formatted XPath.
+	 */
+	public By getByXpath(String locator, String... params) {
+		return LocatorCache.getLocatorCache().getBy(locator, params);
 	}
 
 	/**
@@ -225,7 +285,9 @@ public class BasePage {
 	 * @return The first matching element on the current page
 	 */
 	public WebElement getElement(WebDriver driver, String locator) {
-		return driver.findElement(getByXpath(locator));
+		try (Timer ignored = ActionMetrics.time("getElement", locator)) {
+			return driver.findElement(getByXpath(locator));
+		}
 	}
 
 	/**
@@ -237,7 +299,9 @@ public class BasePage {
 	 * @return The first matching element on the current page
 	 */
 	public WebElement getElement(WebDriver driver, String locator, String... params) {
-		return driver.findElement(getByXpath(getDynamicLocator(locator, params)));
+		try (Timer ignored = ActionMetrics.time("getElement", locator)) {
+			return driver.findElement(getByXpath(locator, params));
+		}
 	}
 
 	/**
@@ -247,7 +311,9 @@ public class BasePage {
 	 * @return
 	 */
 	public List<WebElement> getElements(WebDriver driver, String locator) {
-		return driver.findElements(getByXpath(locator));
+		try (Timer ignored = ActionMetrics.time("getElements", locator)) {
+			return driver.findElements(getByXpath(locator));
+		}
 	}
 
 	/**
@@ -256,7 +322,10 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void clickToElement(WebDriver driver, String locator) {
-		getElement(driver, locator).click();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("clickToElement", locator)) {
+			getElement(driver, locator).click();
+		}
 	}
 
 	/**
@@ -266,7 +335,23 @@ public class BasePage {
 	 * @param params
 	 */
 	public void clickToElement(WebDriver driver, String locator, String... params) {
-		getElement(driver, getDynamicLocator(locator, params)).click();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("clickToElement", locator)) {
+			getElement(driver, locator, params).click();
+		}
+	}
+
+	/**
+	 * 
+	 * @param driver
+	 * @param locator generated typed locator
+	 * @param param
+	 */
+	public void clickToElement(WebDriver driver, Locator1 locator, String param) {
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("clickToElement", locator.toString())) {
+			driver.findElement(locator.by(param)).click();
+		}
 	}
 
 	/**
@@ -276,8 +361,11 @@ public class BasePage {
 	 * @param itemText
 	 */
 	public void sendkeyToElement(WebDriver driver, String locator, String itemText) {
-		getElement(driver, locator).clear();
-		getElement(driver, locator).sendKeys(itemText);
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("sendkeyToElement", locator)) {
+			getElement(driver, locator).clear();
+			getElement(driver, locator).sendKeys(itemText);
+		}
 	}
 
 	/**
@@ -288,7 +376,24 @@ public class BasePage {
 	 * @param params
 	 */
 	public void sendkeyToElement(WebDriver driver, String locator, String itemText, String... params) {
-		getElement(driver, getDynamicLocator(locator, params)).sendKeys(itemText);
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("sendkeyToElement", locator)) {
+			getElement(driver, locator, params).sendKeys(itemText);
+		}
+	}
+
+	/**
+	 * 
+	 * @param driver
+	 * @param locator  generated typed locator
+	 * @param itemText
+	 * @param param
+	 */
+	public void sendkeyToElement(WebDriver driver, Locator1 locator, String itemText, String param) {
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("sendkeyToElement", locator.toString())) {
+			driver.findElement(locator.by(param)).sendKeys(itemText);
+		}
 	}
 
 	/**
@@ -298,7 +403,9 @@ public class BasePage {
 	 * @return
 	 */
 	public int getElementSize(WebDriver driver, String locator) {
-		return getElements(driver, locator).size();
+		try (Timer ignored = ActionMetrics.time("getElementSize", locator)) {
+			return getElements(driver, locator).size();
+		}
 	}
 
 	/**
@@ -309,7 +416,9 @@ public class BasePage {
 	 * @return
 	 */
 	public int getElementSize(WebDriver driver, String locator, String... params) {
-		return getElements(driver, getDynamicLocator(locator, params)).size();
+		try (Timer ignored = ActionMetrics.time("getElementSize", locator)) {
+			return driver.findElements(getByXpath(locator, params)).size();
+		}
 	}
 
 	/**
@@ -319,8 +428,11 @@ public class BasePage {
 	 * @param itemText
 	 */
 	public void selectDropdownByText(WebDriver driver, String locator, String itemText) {
-		select = new Select(getElement(driver, locator));
-		select.selectByVisibleText(itemText);
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("selectDropdownByText", locator)) {
+			Select select = new Select(getElement(driver, locator));
+			select.selectByVisibleText(itemText);
+		}
 	}
 
 	/**
@@ -331,8 +443,26 @@ public class BasePage {
 	 * @param params
 	 */
 	public void selectDropdownByText(WebDriver driver, String locator, String itemText, String... params) {
-		select = new Select(getElement(driver, getDynamicLocator(locator, params)));
-		select.selectByVisibleText(itemText);
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("selectDropdownByText", locator)) {
+			Select select = new Select(getElement(driver, locator, params));
+			select.selectByVisibleText(itemText);
+		}
+	}
+
+	/**
+	 * 
+	 * @param driver
+	 * @param locator  generated typed locator
+	 * @param itemText
+	 * @param param
+	 */
+	public void selectDropdownByText(WebDriver driver, Locator1 locator, String itemText, String param) {
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("selectDropdownByText", locator.toString())) {
+			Select select = new Select(driver.findElement(locator.by(param)));
+			select.selectByVisibleText(itemText);
+		}
 	}
 
 	/**
@@ -342,8 +472,10 @@ public class BasePage {
 	 * @return
 	 */
 	public String getSelectedItemDropdown(WebDriver driver, String locator) {
-		select = new Select(getElement(driver, locator));
-		return select.getFirstSelectedOption().getText();
+		try (Timer ignored = ActionMetrics.time("getSelectedItemDropdown", locator)) {
+			Select select = new Select(getElement(driver, locator));
+			return select.getFirstSelectedOption().getText();
+		}
 	}
 
 	/**
@@ -353,8 +485,10 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean isDropdownMultiple(WebDriver driver, String locator) {
-		select = new Select(getElement(driver, locator));
-		return select.isMultiple();
+		try (Timer ignored = ActionMetrics.time("isDropdownMultiple", locator)) {
+			Select select = new Select(getElement(driver, locator));
+			return select.isMultiple();
+		}
 	}
 
 	/**
@@ -367,22 +501,29 @@ public class BasePage {
 	// select item in custom dropdown
 	public void selectItemInCustomDropdown(WebDriver driver, String parentLocator, String childItemLocator,
 			String expectedItem) {
-		getElement(driver, parentLocator).click();
-		sleepInSecond(1);
-
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		List<WebElement> allItems = explicitWait
-				.until(ExpectedConditions.presenceOfAllElementsLocatedBy(getByXpath(childItemLocator)));
-
-		for (WebElement item : allItems) {
-			if (item.getText().trim().equals(expectedItem)) {
-				jsExecutor = (JavascriptExecutor) driver;
-				jsExecutor.executeScript("arguments[0].scrollIntoView(true);", item);
-				sleepInSecond(1);
-
-				item.click();
-				sleepInSecond(1);
-				break;
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("selectItemInCustomDropdown", parentLocator)) {
+			getElement(driver, parentLocator).click();
+			waitForAnimationFinished(driver);
+
+			List<WebElement> allItems = WaitFactory.until(driver, WaitProfile.SHORT,
+					ExpectedConditions.presenceOfAllElementsLocatedBy(getByXpath(childItemLocator)));
+
+			for (WebElement item : allItems) {
+				if (item.getText().trim().equals(expectedItem)) {
+					JavascriptExecutor jsExecutor = (JavascriptExecutor) driver;
+					jsExecutor.executeScript("arguments[0].scrollIntoView(true);", item);
+					waitForAnimationFinished(driver);
+
+					item.click();
+					try {
+						// at most the 1 s the helper used to sleep: spinners or clocks keep the DOM changing
+						new SmartWait(driver).withTimeout(1).waitForDomStable();
+					} catch (TimeoutException e) {
+						// the item is selected, the page is just not quiet yet
+					}
+					break;
+				}
 			}
 		}
 	}
@@ -395,7 +536,13 @@ public class BasePage {
 	 * @return
 	 */
 	public String getElementAttribute(WebDriver driver, String locator, String attributeName) {
-		return getElement(driver, locator).getAttribute(attributeName);
+		try (Timer ignored = ActionMetrics.time("getElementAttribute", locator)) {
+			ElementState state = getSnapshotState(driver, locator);
+			if (state != null && state.hasAttributeValue(attributeName)) {
+				return state.getAttribute(attributeName);
+			}
+			return getElement(driver, locator).getAttribute(attributeName);
+		}
 	}
 
 	/**
@@ -407,7 +554,9 @@ public class BasePage {
 	 * @return
 	 */
 	public String getElementAttribute(WebDriver driver, String locator, String attributeName, String... params) {
-		return getElement(driver, getDynamicLocator(locator, params)).getAttribute(attributeName);
+		try (Timer ignored = ActionMetrics.time("getElementAttribute", locator)) {
+			return getElement(driver, locator, params).getAttribute(attributeName);
+		}
 	}
 
 	/**
@@ -417,7 +566,13 @@ public class BasePage {
 	 * @return
 	 */
 	public String getElementText(WebDriver driver, String locator) {
-		return getElement(driver, locator).getText();
+		try (Timer ignored = ActionMetrics.time("getElementText", locator)) {
+			ElementState state = getSnapshotState(driver, locator);
+			if (state != null) {
+				return state.getText();
+			}
+			return getElement(driver, locator).getText();
+		}
 	}
 
 	/**
@@ -426,9 +581,13 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void checkToCheckboxOrRadio(WebDriver driver, String locator) {
-		// verify checkbox or radio selected/not-selected
-		if (!getElement(driver, locator).isSelected()) {
-			getElement(driver, locator).click();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("checkToCheckboxOrRadio", locator)) {
+			// verify checkbox or radio selected/not-selected
+			WebElement element = getElement(driver, locator);
+			if (!element.isSelected()) {
+				element.click();
+			}
 		}
 	}
 
@@ -438,8 +597,12 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void uncheckToCheckbox(WebDriver driver, String locator) {
-		if (getElement(driver, locator).isSelected()) {
-			getElement(driver, locator).click();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("uncheckToCheckbox", locator)) {
+			WebElement element = getElement(driver, locator);
+			if (element.isSelected()) {
+				element.click();
+			}
 		}
 	}
 
@@ -450,12 +613,18 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean isElementDisplayed(WebDriver driver, String locator) {
-		try {
-			return getElement(driver, locator).isDisplayed();
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			return false;
+		try (Timer ignored = ActionMetrics.time("isElementDisplayed", locator)) {
+			ElementState state = getSnapshotState(driver, locator);
+			if (state != null) {
+				return state.isDisplayed();
+			}
+			try {
+				return getElement(driver, locator).isDisplayed();
+			} catch (Exception e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+				return false;
+			}
 		}
 	}
 
@@ -467,7 +636,9 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean isElementDisplayed(WebDriver driver, String locator, String... params) {
-		return getElement(driver, getDynamicLocator(locator, params)).isDisplayed();
+		try (Timer ignored = ActionMetrics.time("isElementDisplayed", locator)) {
+			return getElement(driver, locator, params).isDisplayed();
+		}
 	}
 
 	/**
@@ -477,34 +648,28 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean isElementUndisplayed(WebDriver driver, String locator) {
-		overrideGlobalTimeout(driver, shortTimeout);
-		List<WebElement> elements = getElements(driver, locator);
-		overrideGlobalTimeout(driver, longTimeout);
+		try (Timer ignored = ActionMetrics.time("isElementUndisplayed", locator)) {
+			List<WebElement> elements;
+			try (TimeoutScope noImplicitWait = TimeoutManager.forDriver(driver).withoutImplicitWait()) {
+				elements = getElements(driver, locator);
+			}
 
-		System.out.println("Start time: " + new Date().toString());
-		if (elements.size() == 0) {
-			System.out.println("Element is not exists in DOM");
-			System.out.println("End time: " + new Date().toString());
-			return true;
-		} else if (elements.size() > 0 && !elements.get(0).isDisplayed()) {
-			System.out.println("Element is in DOM but not visible/displayed");
-			System.out.println("End time: " + new Date().toString());
-			return true;
-		} else {
-			System.out.println("Element is is visible");
-			return false;
+			System.out.println("Start time: " + new Date().toString());
+			if (elements.size() == 0) {
+				System.out.println("Element is not exists in DOM");
+				System.out.println("End time: " + new Date().toString());
+				return true;
+			} else if (elements.size() > 0 && !elements.get(0).isDisplayed()) {
+				System.out.println("Element is in DOM but not visible/displayed");
+				System.out.println("End time: " + new Date().toString());
+				return true;
+			} else {
+				System.out.println("Element is is visible");
+				return false;
+			}
 		}
 	}
 
-	/**
-	 * 
-	 * @param driver
-	 * @param timeOut
-	 */
-	private void overrideGlobalTimeout(WebDriver driver, int timeOut) {
-		driver.manage().timeouts().implicitlyWait(timeOut, TimeUnit.SECONDS);
-	}
-
 	/**
 	 * 
 	 * @param driver
@@ -512,7 +677,13 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean isElementEnabled(WebDriver driver, String locator) {
-		return getElement(driver, locator).isEnabled();
+		try (Timer ignored = ActionMetrics.time("isElementEnabled", locator)) {
+			ElementState state = getSnapshotState(driver, locator);
+			if (state != null) {
+				return state.isEnabled();
+			}
+			return getElement(driver, locator).isEnabled();
+		}
 	}
 
 	/**
@@ -522,7 +693,13 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean isElementSelected(WebDriver driver, String locator) {
-		return getElement(driver, locator).isSelected();
+		try (Timer ignored = ActionMetrics.time("isElementSelected", locator)) {
+			ElementState state = getSnapshotState(driver, locator);
+			if (state != null) {
+				return state.isSelected();
+			}
+			return getElement(driver, locator).isSelected();
+		}
 	}
 
 	/**
@@ -532,7 +709,10 @@ public class BasePage {
 	 * @return
 	 */
 	public WebDriver switchToIframe(WebDriver driver, String locator) {
-		return driver.switchTo().frame(getElement(driver, locator));
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("switchToIframe", locator)) {
+			return driver.switchTo().frame(getElement(driver, locator));
+		}
 	}
 
 	/**
@@ -541,7 +721,10 @@ public class BasePage {
 	 * @return
 	 */
 	public WebDriver switchToDefaultContent(WebDriver driver) {
-		return driver.switchTo().defaultContent();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("switchToDefaultContent", null)) {
+			return driver.switchTo().defaultContent();
+		}
 	}
 
 	/**
@@ -550,8 +733,11 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void doubleClickToElement(WebDriver driver, String locator) {
-		actions = new Actions(driver);
-		actions.doubleClick(getElement(driver, locator)).perform();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("doubleClickToElement", locator)) {
+			Actions actions = new Actions(driver);
+			actions.doubleClick(getElement(driver, locator)).perform();
+		}
 	}
 
 	/**
@@ -560,8 +746,11 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void moveToElement(WebDriver driver, String locator) {
-		actions = new Actions(driver);
-		actions.moveToElement(getElement(driver, locator)).perform();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("moveToElement", locator)) {
+			Actions actions = new Actions(driver);
+			actions.moveToElement(getElement(driver, locator)).perform();
+		}
 	}
 
 	/***
@@ -570,8 +759,11 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void rightClickToElement(WebDriver driver, String locator) {
-		actions = new Actions(driver);
-		actions.contextClick(getElement(driver, locator)).perform();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("rightClickToElement", locator)) {
+			Actions actions = new Actions(driver);
+			actions.contextClick(getElement(driver, locator)).perform();
+		}
 	}
 
 	/**
@@ -581,8 +773,11 @@ public class BasePage {
 	 * @param targetLocator
 	 */
 	public void dragAndDrop(WebDriver driver, String sourceLocator, String targetLocator) {
-		actions = new Actions(driver);
-		actions.dragAndDrop(getElement(driver, sourceLocator), getElement(driver, targetLocator)).perform();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("dragAndDrop", sourceLocator)) {
+			Actions actions = new Actions(driver);
+			actions.dragAndDrop(getElement(driver, sourceLocator), getElement(driver, targetLocator)).perform();
+		}
 	}
 
 	/**
@@ -592,8 +787,11 @@ public class BasePage {
 	 * @param key
 	 */
 	public void pressKeyToElement(WebDriver driver, String locator, Keys key) {
-		actions = new Actions(driver);
-		actions.sendKeys(getElement(driver, locator), key).perform();
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("pressKeyToElement", locator)) {
+			Actions actions = new Actions(driver);
+			actions.sendKeys(getElement(driver, locator), key).perform();
+		}
 	}
 
 	/**
@@ -603,8 +801,11 @@ public class BasePage {
 	 * @return
 	 */
 	public Object executeForBrowser(WebDriver driver, String javaScript) {
-		jsExecutor = (JavascriptExecutor) driver;
-		return jsExecutor.executeScript(javaScript);
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("executeForBrowser", null)) {
+			JavascriptExecutor jsExecutor = (JavascriptExecutor) driver;
+			return jsExecutor.executeScript(javaScript);
+		}
 	}
 
 	/**
@@ -613,8 +814,10 @@ public class BasePage {
 	 * @return
 	 */
 	public String getInnerText(WebDriver driver) {
-		jsExecutor = (JavascriptExecutor) driver;
-		return (String) jsExecutor.executeScript("return document.documentElement.innerText;");
+		try (Timer ignored = ActionMetrics.time("getInnerText", null)) {
+			JavascriptExecutor jsExecutor = (JavascriptExecutor) driver;
+			return (String) jsExecutor.executeScript("return document.documentElement.innerText;");
+		}
 	}
 
 	/**
@@ -624,10 +827,12 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean areExpectedTextInInnerText(WebDriver driver, String textExpected) {
-		jsExecutor = (JavascriptExecutor) driver;
-		String textActual = (String) jsExecutor
-				.executeScript("return document.documentElement.innerText.match('" + textExpected + "')[0]");
-		return textActual.equals(textExpected);
+		try (Timer ignored = ActionMetrics.time("areExpectedTextInInnerText", null)) {
+			JavascriptExecutor jsExecutor = (JavascriptExecutor) driver;
+			String textActual = (String) jsExecutor
+					.executeScript("return document.documentElement.innerText.match('" + textExpected + "')[0]");
+			return textActual.equals(textExpected);
+		}
 	}
 
 	/**
@@ -635,8 +840,11 @@ public class BasePage {
 	 * @param driver
 	 */
 	public void scrollToBottomPage(WebDriver driver) {
-		jsExecutor = (JavascriptExecutor) driver;
-		jsExecutor.executeScript("window.scrollBy(0,document.body.scrollHeight)");
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("scrollToBottomPage", null)) {
+			JavascriptExecutor jsExecutor = (JavascriptExecutor) driver;
+			jsExecutor.executeScript("window.scrollBy(0,document.body.scrollHeight)");
+		}
 	}
 
 	/**
@@ -644,8 +852,11 @@ public class BasePage {
 	 * @param driver
 	 */
 	public void scrollToTopPage(WebDriver driver) {
-		jsExecutor = (JavascriptExecutor) driver;
-		jsExecutor.executeScript("window.scrollTo(0,0)");
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("scrollToTopPage", null)) {
+			JavascriptExecutor jsExecutor = (JavascriptExecutor) driver;
+			jsExecutor.executeScript("window.scrollTo(0,0)");
+		}
 	}
 
 	/**
@@ -654,8 +865,11 @@ public class BasePage {
 	 * @param url
 	 */
 	public void navigateToUrlByJS(WebDriver driver, String url) {
-		jsExecutor = (JavascriptExecutor) driver;
-		jsExecutor.executeScript("window.location = '" + url + "'");
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("navigateToUrlByJS", null)) {
+			JavascriptExecutor jsExecutor = (JavascriptExecutor) driver;
+			jsExecutor.executeScript("window.location = '" + url + "'");
+		}
 	}
 
 	/**
@@ -664,14 +878,41 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void highlightElement(WebDriver driver, String locator) {
-		jsExecutor = (JavascriptExecutor) driver;
-		WebElement element = getElement(driver, locator);
-		String originalStyle = element.getAttribute("style");
-		jsExecutor.executeScript("arguments[0].setAttribute(arguments[1], arguments[2])", element, "style",
-				"border: 2px solid red; border-style: dashed;");
-		sleepInSecond(1);
-		jsExecutor.executeScript("arguments[0].setAttribute(arguments[1], arguments[2])", element, "style",
-				originalStyle);
+		try (Timer ignored = ActionMetrics.time("highlightElement", locator)) {
+			ScriptBatch batch = new ScriptBatch(driver);
+			ScriptBatch.Result<String> originalStyle = batch.readAttribute(locator, "style");
+			batch.setAttribute(locator, "style", "border: 2px solid red; border-style: dashed;");
+			executeBatch(driver, batch);
+			boolean interrupted = false;
+			try {
+				Thread.sleep(GlobalConstants.HIGHLIGHT_DURATION_MILLIS);
+			} catch (InterruptedException e) {
+				// restore the style first, the driver may not talk on an interrupted thread
+				interrupted = true;
+			} finally {
+				if (originalStyle.get() == null) {
+					batch.removeAttribute(locator, "style");
+				} else {
+					batch.setAttribute(locator, "style", originalStyle.get());
+				}
+				executeBatch(driver, batch);
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Wait at most ANIMATION_WAIT_TIMEOUT, the second the helpers used to sleep,
+	 * for the animations to finish: a page that keeps animating is not an error
+	 */
+	private void waitForAnimationFinished(WebDriver driver) {
+		try {
+			new SmartWait(driver).withTimeout(GlobalConstants.ANIMATION_WAIT_TIMEOUT).waitForAnimationFinished();
+		} catch (TimeoutException e) {
+			// the animation goes on, the element is usable anyway
+		}
 	}
 
 	/**
@@ -680,8 +921,10 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void clickToElementByJS(WebDriver driver, String locator) {
-		jsExecutor = (JavascriptExecutor) driver;
-		jsExecutor.executeScript("arguments[0].click();", getElement(driver, locator));
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("clickToElementByJS", locator)) {
+			executeBatch(driver, new ScriptBatch(driver).click(locator));
+		}
 	}
 
 	/**
@@ -690,8 +933,10 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void scrollToElement(WebDriver driver, String locator) {
-		jsExecutor = (JavascriptExecutor) driver;
-		jsExecutor.executeScript("arguments[0].scrollIntoView(true);", getElement(driver, locator));
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("scrollToElement", locator)) {
+			executeBatch(driver, new ScriptBatch(driver).scrollIntoView(locator));
+		}
 	}
 
 	/**
@@ -701,8 +946,10 @@ public class BasePage {
 	 * @param value
 	 */
 	public void sendkeyToElementByJS(WebDriver driver, String locator, String value) {
-		jsExecutor = (JavascriptExecutor) driver;
-		jsExecutor.executeScript("arguments[0].setAttribute('value', '" + value + "')", getElement(driver, locator));
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("sendkeyToElementByJS", locator)) {
+			executeBatch(driver, new ScriptBatch(driver).setAttribute(locator, "value", value));
+		}
 	}
 
 	/**
@@ -712,9 +959,10 @@ public class BasePage {
 	 * @param attributeRemove
 	 */
 	public void removeAttributeInDOM(WebDriver driver, String locator, String attributeRemove) {
-		jsExecutor = (JavascriptExecutor) driver;
-		jsExecutor.executeScript("arguments[0].removeAttribute('" + attributeRemove + "');",
-				getElement(driver, locator));
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("removeAttributeInDOM", locator)) {
+			executeBatch(driver, new ScriptBatch(driver).removeAttribute(locator, attributeRemove));
+		}
 	}
 
 	/**
@@ -723,28 +971,32 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean areJQueryAndJSLoadedSuccess(WebDriver driver) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		jsExecutor = (JavascriptExecutor) driver;
-
-		ExpectedCondition<Boolean> jQueryLoad = new ExpectedCondition<Boolean>() {
-			@Override
-			public Boolean apply(WebDriver driver) {
-				try {
-					return ((Long) jsExecutor.executeScript("return jQuery.active") == 0);
-				} catch (Exception e) {
-					return true;
+		try (Timer ignored = ActionMetrics.time("areJQueryAndJSLoadedSuccess", null)) {
+			final JavascriptExecutor jsExecutor = (JavascriptExecutor) driver;
+
+			ExpectedCondition<Boolean> jQueryLoad = new ExpectedCondition<Boolean>() {
+				@Override
+				public Boolean apply(WebDriver driver) {
+					try {
+						return ((Long) jsExecutor.executeScript("return jQuery.active") == 0);
+					} catch (Exception e) {
+						return true;
+					}
 				}
-			}
-		};
+			};
 
-		ExpectedCondition<Boolean> jsLoad = new ExpectedCondition<Boolean>() {
-			@Override
-			public Boolean apply(WebDriver driver) {
-				return jsExecutor.executeScript("return document.readyState").toString().equals("complete");
-			}
-		};
+			ExpectedCondition<Boolean> jsLoad = new ExpectedCondition<Boolean>() {
+				@Override
+				public Boolean apply(WebDriver driver) {
+					return jsExecutor.executeScript("return document.readyState").toString().equals("complete");
+				}
+			};
 
-		return explicitWait.until(jQueryLoad) && explicitWait.until(jsLoad);
+			return WaitFactory.untilBrowserState(driver, WaitProfile.SHORT, jQueryLoad)
+					&& WaitFactory.untilBrowserState(driver, WaitProfile.SHORT, jsLoad);
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -754,8 +1006,12 @@ public class BasePage {
 	 * @return
 	 */
 	public String getElementValidationMessage(WebDriver driver, String locator) {
-		jsExecutor = (JavascriptExecutor) driver;
-		return (String) jsExecutor.executeScript("return arguments[0].validationMessage;", getElement(driver, locator));
+		try (Timer ignored = ActionMetrics.time("getElementValidationMessage", locator)) {
+			ScriptBatch batch = new ScriptBatch(driver);
+			ScriptBatch.Result<Object> validationMessage = batch.readProperty(locator, "validationMessage");
+			executeBatch(driver, batch);
+			return (String) validationMessage.get();
+		}
 	}
 
 	/**
@@ -765,26 +1021,116 @@ public class BasePage {
 	 * @return
 	 */
 	public boolean isImageLoaded(WebDriver driver, String locator) {
-		jsExecutor = (JavascriptExecutor) driver;
-		boolean status = (boolean) jsExecutor.executeScript(
-				"return arguments[0].complete && typeof arguments[0].naturalWidth != \"undefined\" && arguments[0].naturalWidth > 0",
-				getElement(driver, locator));
-		if (status) {
-			return true;
-		} else {
-			return false;
+		try (Timer ignored = ActionMetrics.time("isImageLoaded", locator)) {
+			ScriptBatch batch = new ScriptBatch(driver);
+			ScriptBatch.Result<Boolean> imageLoaded = batch.readImageLoaded(locator);
+			executeBatch(driver, batch);
+			return imageLoaded.get();
+		}
+	}
+
+	/**
+	 * Read the state of several elements in one browser call
+	 * 
+	 * @param driver
+	 * @param locators
+	 * @return tag, text, attributes and displayed/enabled/selected state of each
+	 *         locator
+	 */
+	public List<ElementState> getElementStates(WebDriver driver, String... locators) {
+		try (Timer ignored = ActionMetrics.time("getElementStates", null)) {
+			return ScriptBatch.readStates(driver, locators);
+		}
+	}
+
+	/**
+	 * Read the state of several elements in one browser call and keep it for the
+	 * current thread. Until the next action that may change the page,
+	 * getElementText, getElementAttribute, isElementDisplayed, isElementEnabled
+	 * and isElementSelected answer from the snapshot for these locators.
+	 * 
+	 * @param driver
+	 * @param locators
+	 * @return the snapshot
+	 */
+	public PageSnapshot takeSnapshot(WebDriver driver, String... locators) {
+		try (Timer ignored = ActionMetrics.time("takeSnapshot", null)) {
+			PageSnapshot snapshot = PageSnapshot.of(driver, locators);
+			PageSnapshot.setCurrent(snapshot);
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Read the state of a region of the page (an element and everything inside
+	 * it) in one browser call and keep it for the current thread, like
+	 * {@link #takeSnapshot(WebDriver, String...)}
+	 * 
+	 * @param driver
+	 * @param regionLocator
+	 * @return the snapshot
+	 */
+	public PageSnapshot takeRegionSnapshot(WebDriver driver, String regionLocator) {
+		try (Timer ignored = ActionMetrics.time("takeRegionSnapshot", regionLocator)) {
+			PageSnapshot snapshot = PageSnapshot.ofRegion(driver, regionLocator);
+			PageSnapshot.setCurrent(snapshot);
+			return snapshot;
 		}
 	}
 
+	/**
+	 * Drop the snapshot of the current thread. Called before every action that
+	 * changes the page and after every wait, since the page changed meanwhile.
+	 */
+	public void invalidateSnapshot() {
+		PageSnapshot.clearCurrent();
+	}
+
 	/**
 	 * 
 	 * @param driver
 	 * @param locator
+	 * @return the state of the element in the valid snapshot of the current
+	 *         thread, or null if the snapshot can not answer
 	 */
-	public void waitForElementVisible(WebDriver driver, String locator) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		explicitWait.until(ExpectedConditions.visibilityOfElementLocated(getByXpath(locator)));
+	private ElementState getSnapshotState(WebDriver driver, String locator) {
+		PageSnapshot snapshot = PageSnapshot.current(driver);
+		if (snapshot == null) {
+			return null;
+		}
+		ElementState state = snapshot.get(locator);
+		return state != null && state.isPresent() ? state : null;
+	}
 
+	/**
+	 * Execute a batch. When an element is not in the page yet, wait for it with
+	 * the implicit wait like getElement does, then execute the batch again: it has
+	 * not run any operation.
+	 * 
+	 * @param driver
+	 * @param batch
+	 */
+	private void executeBatch(WebDriver driver, ScriptBatch batch) {
+		try {
+			batch.execute();
+		} catch (ScriptBatch.MissingElementException e) {
+			getElement(driver, e.getLocator());
+			batch.execute();
+		}
+	}
+
+	/**
+	 * 
+	 * @param driver
+	 * @param locator
+	 */
+	public void waitForElementVisible(WebDriver driver, String locator) {
+		try (Timer ignored = ActionMetrics.time("waitForElementVisible", locator)) {
+			WaitFactory.until(driver, WaitProfile.SHORT,
+					ExpectedConditions.visibilityOfElementLocated(getByXpath(locator)));
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -794,10 +1140,26 @@ public class BasePage {
 	 * @param params
 	 */
 	public void waitForElementVisible(WebDriver driver, String locator, String... params) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		explicitWait
-				.until(ExpectedConditions.visibilityOfElementLocated(getByXpath(getDynamicLocator(locator, params))));
+		try (Timer ignored = ActionMetrics.time("waitForElementVisible", locator)) {
+			WaitFactory.until(driver, WaitProfile.SHORT,
+					ExpectedConditions.visibilityOfElementLocated(getByXpath(locator, params)));
+		} finally {
+			invalidateSnapshot();
+		}
+	}
 
+	/**
+	 * 
+	 * @param driver
+	 * @param locator generated typed locator
+	 * @param param
+	 */
+	public void waitForElementVisible(WebDriver driver, Locator1 locator, String param) {
+		try (Timer ignored = ActionMetrics.time("waitForElementVisible", locator.toString())) {
+			WaitFactory.until(driver, WaitProfile.SHORT, ExpectedConditions.visibilityOfElementLocated(locator.by(param)));
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -806,9 +1168,12 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void waitForAllElementsVisible(WebDriver driver, String locator) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		explicitWait.until(ExpectedConditions.visibilityOfAllElementsLocatedBy(getByXpath(locator)));
-
+		try (Timer ignored = ActionMetrics.time("waitForAllElementsVisible", locator)) {
+			WaitFactory.until(driver, WaitProfile.SHORT,
+					ExpectedConditions.visibilityOfAllElementsLocatedBy(getByXpath(locator)));
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -817,8 +1182,11 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void waitForElementClickable(WebDriver driver, String locator) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		explicitWait.until(ExpectedConditions.elementToBeClickable(getByXpath(locator)));
+		try (Timer ignored = ActionMetrics.time("waitForElementClickable", locator)) {
+			WaitFactory.until(driver, WaitProfile.SHORT, ExpectedConditions.elementToBeClickable(getByXpath(locator)));
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -828,8 +1196,26 @@ public class BasePage {
 	 * @param params
 	 */
 	public void waitForElementClickable(WebDriver driver, String locator, String... params) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		explicitWait.until(ExpectedConditions.elementToBeClickable(getByXpath(getDynamicLocator(locator, params))));
+		try (Timer ignored = ActionMetrics.time("waitForElementClickable", locator)) {
+			WaitFactory.until(driver, WaitProfile.SHORT,
+					ExpectedConditions.elementToBeClickable(getByXpath(locator, params)));
+		} finally {
+			invalidateSnapshot();
+		}
+	}
+
+	/**
+	 * 
+	 * @param driver
+	 * @param locator generated typed locator
+	 * @param param
+	 */
+	public void waitForElementClickable(WebDriver driver, Locator1 locator, String param) {
+		try (Timer ignored = ActionMetrics.time("waitForElementClickable", locator.toString())) {
+			WaitFactory.until(driver, WaitProfile.SHORT, ExpectedConditions.elementToBeClickable(locator.by(param)));
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -838,8 +1224,12 @@ public class BasePage {
 	 * @param locator
 	 */
 	public void waitForElementInvisible(WebDriver driver, String locator) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		explicitWait.until(ExpectedConditions.invisibilityOfElementLocated(getByXpath(locator)));
+		try (Timer ignored = ActionMetrics.time("waitForElementInvisible", locator)) {
+			WaitFactory.until(driver, WaitProfile.SHORT,
+					ExpectedConditions.invisibilityOfElementLocated(getByXpath(locator)));
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -849,9 +1239,12 @@ public class BasePage {
 	 * @param params
 	 */
 	public void waitForElementInvisible(WebDriver driver, String locator, String... params) {
-		explicitWait = new WebDriverWait(driver, shortTimeout);
-		explicitWait
-				.until(ExpectedConditions.invisibilityOfElementLocated(getByXpath(getDynamicLocator(locator, params))));
+		try (Timer ignored = ActionMetrics.time("waitForElementInvisible", locator)) {
+			WaitFactory.until(driver, WaitProfile.SHORT,
+					ExpectedConditions.invisibilityOfElementLocated(getByXpath(locator, params)));
+		} finally {
+			invalidateSnapshot();
+		}
 	}
 
 	/**
@@ -861,7 +1254,7 @@ public class BasePage {
 	 * @return
 	 */
 	public String getDynamicLocator(String locator, String... params) {
-		return String.format(locator, (Object) params);
+		return LocatorCache.getLocatorCache().getTemplate(locator).format(params);
 	}
 
 	/**
@@ -883,12 +1276,17 @@ public class BasePage {
 	 * @return
 	 */
 	public Set<Cookie> getAllCookies(WebDriver driver) {
-		return driver.manage().getCookies();
+		try (Timer ignored = ActionMetrics.time("getAllCookies", null)) {
+			return driver.manage().getCookies();
+		}
 	}
 
 	public void setAllCookies(WebDriver driver, Set<Cookie> Allcookies) {
-		for (Cookie cookie : Allcookies) {
-			driver.manage().addCookie(cookie);
+		invalidateSnapshot();
+		try (Timer ignored = ActionMetrics.time("setAllCookies", null)) {
+			for (Cookie cookie : Allcookies) {
+				driver.manage().addCookie(cookie);
+			}
 		}
 	}
 
@@ -900,8 +1298,10 @@ public class BasePage {
 	 */
 	// Pattern Object
 	public void enterToTextboxByID(WebDriver driver, String textboxID, String value) {
-		waitForElementVisible(driver, BasePageUI.DYNAMIC_TEXTBOX_BY_ID, textboxID);
-		sendkeyToElement(driver, BasePageUI.DYNAMIC_TEXTBOX_BY_ID, value, textboxID);
+		try (Timer ignored = ActionMetrics.time("enterToTextboxByID", BasePageUI.DYNAMIC_TEXTBOX_BY_ID)) {
+			waitForElementVisible(driver, BasePageUI.DYNAMIC_TEXTBOX_BY_ID, textboxID);
+			sendkeyToElement(driver, BasePageUI.DYNAMIC_TEXTBOX_BY_ID, value, textboxID);
+		}
 	}
 
 	/**
@@ -910,8 +1310,10 @@ public class BasePage {
 	 * @param buttonText
 	 */
 	public void clickToButtonByText(WebDriver driver, String buttonText) {
-		waitForElementClickable(driver, BasePageUI.DYNAMIC_BUTTON_BY_TEXT, buttonText);
-		clickToElement(driver, BasePageUI.DYNAMIC_BUTTON_BY_TEXT, buttonText);
+		try (Timer ignored = ActionMetrics.time("clickToButtonByText", BasePageUI.DYNAMIC_BUTTON_BY_TEXT)) {
+			waitForElementClickable(driver, BasePageUI.DYNAMIC_BUTTON_BY_TEXT, buttonText);
+			clickToElement(driver, BasePageUI.DYNAMIC_BUTTON_BY_TEXT, buttonText);
+		}
 	}
 
 	/**
@@ -920,8 +1322,10 @@ public class BasePage {
 	 * @param radioID
 	 */
 	public void clickToRadioButtonByID(WebDriver driver, String radioID) {
-		waitForElementClickable(driver, BasePageUI.DYNAMIC_RADIO_BY_ID, radioID);
-		clickToElement(driver, BasePageUI.DYNAMIC_RADIO_BY_ID, radioID);
+		try (Timer ignored = ActionMetrics.time("clickToRadioButtonByID", BasePageUI.DYNAMIC_RADIO_BY_ID)) {
+			waitForElementClickable(driver, BasePageUI.DYNAMIC_RADIO_BY_ID, radioID);
+			clickToElement(driver, BasePageUI.DYNAMIC_RADIO_BY_ID, radioID);
+		}
 	}
 
 	/**
@@ -931,14 +1335,8 @@ public class BasePage {
 	 * @param itemText
 	 */
 	public void selectDropdownByName(WebDriver driver, String dropdownName, String itemText) {
-		selectDropdownByText(driver, BasePageUI.DYNAMIC_DROPDOWN_BY_NAME, itemText, dropdownName);
+		try (Timer ignored = ActionMetrics.time("selectDropdownByName", BasePageUI.DYNAMIC_DROPDOWN_BY_NAME)) {
+			selectDropdownByText(driver, BasePageUI.DYNAMIC_DROPDOWN_BY_NAME, itemText, dropdownName);
+		}
 	}
-
-	private int longTimeout = GlobalConstants.LONG_TIMEOUT;
-	private int shortTimeout = GlobalConstants.SHORT_TIMEOUT;
-	private Alert alert;
-	private Select select;
-	private Actions actions;
-	private WebDriverWait explicitWait;
-	private JavascriptExecutor jsExecutor;
 }
\ No newline at end of file
@@ -1,22 +1,19 @@
 package commons;
 
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.edge.EdgeDriver;
-import org.openqa.selenium.firefox.FirefoxDriver;
-import io.github.bonigarcia.wdm.WebDriverManager;
 
 public class BaseTest {
 
+	/**
+	 * Driver of the last call to getBrowserDriver. Tests running in parallel must
+	 * use {@link #getDriver()} instead
+	 */
 	protected WebDriver driver;
 	protected final Log log;
 
-	private enum BROWSER {
+	enum BROWSER {
 		CHROME, FIREFOX, IE, SAFARI, H_CHOME, H_FIREFOX, EDGE_CHROMIUM, EDGE_LEGACY
 	}
 
@@ -25,84 +22,69 @@ public class BaseTest {
 	}
 
 	protected WebDriver getBrowserDriver(String browserName, String appURL) {
-		BROWSER browser = BROWSER.valueOf(browserName.toUpperCase());
-		if (browser == BROWSER.CHROME) {
-			// cách 2: sử dụng webDriver manage
-			WebDriverManager.chromedriver().setup();
-			driver = new ChromeDriver();
-		} else if (browser == BROWSER.FIREFOX) {
-			WebDriverManager.firefoxdriver().setup();
-			driver = new FirefoxDriver();
-		} else if (browser == BROWSER.EDGE_CHROMIUM) {
-			WebDriverManager.chromiumdriver().setup();
-			driver = new EdgeDriver();
-		} else {
-			throw new RuntimeException("Please input valid browser name!");
-		}
-		driver.manage().timeouts().implicitlyWait(15, TimeUnit.SECONDS);
-		driver.manage().window().maximize();
-		driver.get(appURL);
-		return driver;
+		WebDriver leased = DriverPool.getPool().lease(BrowserProfile.of(browserName), appURL);
+		DriverManager.setDriver(leased);
+		driver = leased;
+		return leased;
 	}
 
-	protected void closeBrowserAndDriver() {
-		String cmd = "";
-		try {
-			String osName = System.getProperty("os.name").toLowerCase();
-			log.info("OS name = " + osName);
+	/**
+	 * Open the application already logged in as the role, when a login state of
+	 * the role was saved by {@link #saveLoginState(String)} in this or a previous
+	 * run and the server still accepts it. Otherwise the application is opened
+	 * logged out and the test must log in, then save the state.
+	 * 
+	 * @param browserName
+	 * @param appURL
+	 * @param role        user role, such as "admin"
+	 * @return the driver
+	 */
+	protected WebDriver getBrowserDriver(String browserName, String appURL, String role) {
+		LoginStateCache loginStates = LoginStateCache.getCache();
+		if (!loginStates.hasState(role)) {
+			return getBrowserDriver(browserName, appURL);
+		}
+		WebDriver leased = getBrowserDriver(browserName, LoginStateCache.getBootstrapUrl(appURL));
+		if (!loginStates.restore(leased, role, appURL)) {
+			log.info("Login state of " + role + " is no longer available, the test must log in");
+			// a rejected state already left the session on the login page
+			if (leased.getCurrentUrl().equals(LoginStateCache.getBootstrapUrl(appURL))) {
+				leased.get(appURL);
+			}
+		}
+		return leased;
+	}
 
-			String driverInstanceName = driver.toString().toLowerCase();
-			log.info("Driver instance name = " + osName);
+	/**
+	 * Save the cookies and storage of the current session for the role, right
+	 * after logging in
+	 * 
+	 * @param role
+	 */
+	protected void saveLoginState(String role) {
+		LoginStateCache.getCache().capture(getDriver(), role);
+	}
 
-			if (driverInstanceName.contains("chrome")) {
-				if (osName.contains("window")) {
-					cmd = "taskkill /F /FI \"IMAGENAME eq chromedriver*\"";
-				} else {
-					cmd = "pkill chromedriver";
-				}
-			} else if (driverInstanceName.contains("internetexplorer")) {
-				if (osName.contains("window")) {
-					cmd = "taskkill /F /FI \"IMAGENAME eq IEDriverServer*\"";
-				}
-			} else if (driverInstanceName.contains("firefox")) {
-				if (osName.contains("windows")) {
-					cmd = "taskkill /F /FI \"IMAGENAME eq geckodriver*\"";
-				} else {
-					cmd = "pkill geckodriver";
-				}
-			} else if (driverInstanceName.contains("edge")) {
-				if (osName.contains("window")) {
-					cmd = "taskkill /F /FI \"IMAGENAME eq msedgedriver*\"";
-				} else {
-					cmd = "pkill msedgedriver";
-				}
-			} else if (driverInstanceName.contains("opera")) {
-				if (osName.contains("window")) {
-					cmd = "taskkill /F /FI \"IMAGENAME eq operadriver*\"";
-				} else {
-					cmd = "pkill operadriver";
-				}
-			} else if (driverInstanceName.contains("safari")) {
-				if (osName.contains("mac")) {
-					cmd = "pkill safaridriver";
-				}
-			}
+	/**
+	 * @return the driver owned by the current test thread
+	 */
+	protected WebDriver getDriver() {
+		return DriverManager.getDriver();
+	}
 
-			if (driver != null) {
-				driver.manage().deleteAllCookies();
-				driver.quit();
-			}
-		} catch (Exception e) {
-			log.info(e.getMessage());
-		} finally {
-			try {
-				Process process = Runtime.getRuntime().exec(cmd);
-				process.waitFor();
-			} catch (IOException e) {
-				e.printStackTrace();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
+	/**
+	 * Give the driver of the current thread back to the pool. When the pool can
+	 * not reuse it, the driver is quit in the background and this method returns
+	 * immediately
+	 */
+	protected void closeBrowserAndDriver() {
+		WebDriver driver = DriverManager.getDriver();
+		DriverManager.removeDriver();
+		WaitFactory.release(driver);
+		WindowRegistry.remove(driver);
+		PageSnapshot.clearCurrent();
+		if (driver != null && !DriverPool.getPool().release(driver)) {
+			DriverReaper.getReaper().reap(driver);
 		}
 	}
 }
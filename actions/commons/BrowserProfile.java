@@ -0,0 +1,241 @@
+package commons;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openqa.selenium.MutableCapabilities;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.GeckoDriverService;
+import org.openqa.selenium.remote.CapabilityType;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.service.DriverService;
+
+import commons.BaseTest.BROWSER;
+import io.github.bonigarcia.wdm.config.DriverManagerType;
+
+/**
+ * A browser together with the capabilities it is launched with. Two profiles
+ * are equal when they would start an identical session, so a profile is used as
+ * the key of the {@link DriverPool}.
+ */
+public final class BrowserProfile {
+
+	private BrowserProfile(BROWSER browser, MutableCapabilities options) {
+		this.browser = browser;
+		this.options = options;
+	}
+
+	/**
+	 * Build the default profile of a browser
+	 *
+	 * @param browserName name of a {@link BROWSER} value, case insensitive
+	 * @return profile of the browser
+	 */
+	public static BrowserProfile of(String browserName) {
+		BROWSER browser = BROWSER.valueOf(browserName.toUpperCase());
+		return new BrowserProfile(browser, newOptions(browser));
+	}
+
+	/**
+	 * Start a new browser session of this profile
+	 *
+	 * @return the new driver
+	 */
+	public WebDriver launch() {
+		long start = System.nanoTime();
+		MutableCapabilities launchOptions = getLaunchOptions();
+		DriverService service;
+		if (browser == BROWSER.CHROME || browser == BROWSER.H_CHOME) {
+			service = new ChromeDriverService.Builder()
+					.usingDriverExecutable(getDriverBinary(DriverManagerType.CHROME)).usingAnyFreePort().build();
+		} else if (browser == BROWSER.FIREFOX || browser == BROWSER.H_FIREFOX) {
+			service = new GeckoDriverService.Builder()
+					.usingDriverExecutable(getDriverBinary(DriverManagerType.FIREFOX)).usingAnyFreePort().build();
+		} else {
+			service = new EdgeDriverService.Builder()
+					.usingDriverExecutable(getDriverBinary(DriverManagerType.EDGE)).usingAnyFreePort().build();
+		}
+		WebDriver driver = newDriver(service, launchOptions);
+		DriverReaper.getReaper().register(driver, service);
+		TimeoutManager.forDriver(driver).applyDefaults();
+		if (!isHeadless()) {
+			// headless windows get a fixed size from the options
+			driver.manage().window().maximize();
+		}
+		recordStartup(System.nanoTime() - start);
+		return driver;
+	}
+
+	/**
+	 * Start the session on the service. With -Dcommand.trace=true the session is
+	 * a plain RemoteWebDriver sending its commands through the
+	 * {@link CommandTracer}, so the browser specific commands of ChromeDriver,
+	 * FirefoxDriver and EdgeDriver are not available while tracing.
+	 *
+	 * @param service       driver service of the browser, not started yet
+	 * @param launchOptions capabilities of the session
+	 * @return the new driver
+	 */
+	private WebDriver newDriver(DriverService service, MutableCapabilities launchOptions) {
+		if (GlobalConstants.COMMAND_TRACE_ENABLED) {
+			return new RemoteWebDriver(CommandTracer.newExecutor(service), launchOptions);
+		}
+		if (browser == BROWSER.CHROME || browser == BROWSER.H_CHOME) {
+			return new ChromeDriver((ChromeDriverService) service, (ChromeOptions) launchOptions);
+		} else if (browser == BROWSER.FIREFOX || browser == BROWSER.H_FIREFOX) {
+			return new FirefoxDriver((GeckoDriverService) service, (FirefoxOptions) launchOptions);
+		}
+		return new EdgeDriver((EdgeDriverService) service, (EdgeOptions) launchOptions);
+	}
+
+	/**
+	 * @return true for the profiles that run without a visible window
+	 */
+	public boolean isHeadless() {
+		return browser == BROWSER.H_CHOME || browser == BROWSER.H_FIREFOX;
+	}
+
+	/**
+	 * @param browser
+	 * @return average time to launch a session of the browser in this JVM, in
+	 *         milliseconds, or -1 if none was launched
+	 */
+	public static long getAverageStartupMillis(BROWSER browser) {
+		long[] startup = startups.get(browser);
+		if (startup == null) {
+			return -1;
+		}
+		synchronized (startup) {
+			return startup[0] == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(startup[1] / startup[0]);
+		}
+	}
+
+	public BROWSER getBrowser() {
+		return browser;
+	}
+
+	public MutableCapabilities getOptions() {
+		return options;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof BrowserProfile)) {
+			return false;
+		}
+		BrowserProfile that = (BrowserProfile) other;
+		return browser == that.browser && capabilities().equals(that.capabilities());
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * browser.hashCode() + capabilities().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return browser + " " + capabilities();
+	}
+
+	private Map<String, Object> capabilities() {
+		return options.asMap();
+	}
+
+	private static File getDriverBinary(DriverManagerType type) {
+		return new File(DriverBinaryCache.getCache().resolve(type));
+	}
+
+	private void recordStartup(long nanos) {
+		long[] startup = startups.computeIfAbsent(browser, new Function<BROWSER, long[]>() {
+			@Override
+			public long[] apply(BROWSER key) {
+				return new long[2];
+			}
+		});
+		synchronized (startup) {
+			startup[0]++;
+			startup[1] += nanos;
+		}
+		log.info("Launched " + browser + " in " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+	}
+
+	/**
+	 * Options to start the browser with. When RESOURCE_FILTER_ENABLED, the
+	 * traffic of the browser goes through the {@link ResourceFilterProxy}, which
+	 * is started by the first launch. The proxy is set on new options, so the
+	 * options that identify the profile stay the same.
+	 */
+	private MutableCapabilities getLaunchOptions() {
+		if (!GlobalConstants.RESOURCE_FILTER_ENABLED) {
+			return options;
+		}
+		MutableCapabilities launchOptions = newOptions(browser);
+		launchOptions.setCapability(CapabilityType.PROXY, ResourceFilterProxy.getProxy().getSeleniumProxy());
+		return launchOptions;
+	}
+
+	private static MutableCapabilities newOptions(BROWSER browser) {
+		if (browser == BROWSER.CHROME) {
+			return new ChromeOptions();
+		} else if (browser == BROWSER.FIREFOX) {
+			return new FirefoxOptions();
+		} else if (browser == BROWSER.EDGE_CHROMIUM) {
+			return new EdgeOptions();
+		} else if (browser == BROWSER.H_CHOME) {
+			return headlessChromeOptions();
+		} else if (browser == BROWSER.H_FIREFOX) {
+			return headlessFirefoxOptions();
+		} else {
+			throw new RuntimeException("Please input valid browser name!");
+		}
+	}
+
+	private static ChromeOptions headlessChromeOptions() {
+		ChromeOptions options = new ChromeOptions();
+		options.setHeadless(true);
+		options.addArguments("--disable-extensions", "--disable-gpu", "--blink-settings=imagesEnabled=false",
+				"--window-size=" + GlobalConstants.HEADLESS_WINDOW_WIDTH + "," + GlobalConstants.HEADLESS_WINDOW_HEIGHT);
+		if (GlobalConstants.HEADLESS_EAGER_PAGE_LOAD) {
+			options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+		}
+		return options;
+	}
+
+	private static FirefoxOptions headlessFirefoxOptions() {
+		FirefoxOptions options = new FirefoxOptions();
+		options.setHeadless(true);
+		options.addArguments("--width=" + GlobalConstants.HEADLESS_WINDOW_WIDTH,
+				"--height=" + GlobalConstants.HEADLESS_WINDOW_HEIGHT);
+		// 2: block all images
+		options.addPreference("permissions.default.image", 2);
+		options.addPreference("extensions.enabledScopes", 0);
+		options.addPreference("layers.acceleration.disabled", true);
+		if (GlobalConstants.HEADLESS_EAGER_PAGE_LOAD) {
+			options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+		}
+		return options;
+	}
+
+	private static final Log log = LogFactory.getLog(BrowserProfile.class);
+	private static final Map<BROWSER, long[]> startups = new ConcurrentHashMap<BROWSER, long[]>();
+
+	private final BROWSER browser;
+	private final MutableCapabilities options;
+}
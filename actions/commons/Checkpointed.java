@@ -0,0 +1,14 @@
+package commons;
+
+/**
+ * A test parameter whose processing is recorded in a checkpoint, so a resumed
+ * run skips it. {@link MethodListener} calls markDone when the test that
+ * received the parameter passes.
+ */
+public interface Checkpointed {
+
+	/**
+	 * Record the parameter as processed
+	 */
+	void markDone();
+}
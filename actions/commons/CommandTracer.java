@@ -0,0 +1,318 @@
+package commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandInfo;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.service.DriverService;
+
+import com.google.gson.Gson;
+
+/**
+ * Records every command a driver sends to its browser: name, duration, and the
+ * framework method that sent it. The duration is split in server time, the
+ * HTTP exchange with the driver binary, and client time, encoding the command
+ * and decoding the response. Sizes are the HTTP request and response bodies as
+ * sent on the wire. The trace of a test is written as Chrome trace-event JSON,
+ * which chrome://tracing and Perfetto open, so a helper that sends a storm of
+ * commands stands out.
+ *
+ * Tracing costs a stack walk per command and a file per test, so it is off
+ * unless the JVM is started with -Dcommand.trace=true.
+ *
+ * A traced session is a RemoteWebDriver built on {@link #newExecutor}: the
+ * executor and the HTTP client are wrapped through public Selenium APIs only.
+ *
+ * Commands are recorded on the thread that sends them, like the driver they
+ * belong to.
+ */
+public final class CommandTracer {
+	private CommandTracer() {
+	}
+
+	/**
+	 * Build the command executor of a traced session, to be given to the public
+	 * RemoteWebDriver(CommandExecutor, Capabilities) constructor. Like the
+	 * executor of ChromeDriver or FirefoxDriver, it starts the service with the
+	 * new session and stops it after quit.
+	 *
+	 * @param service driver service of the session, not started yet
+	 * @return executor that records every command of the session
+	 */
+	public static CommandExecutor newExecutor(DriverService service) {
+		return new TracingExecutor(service, new HttpCommandExecutor(Collections.<String, CommandInfo>emptyMap(),
+				service.getUrl(), TIMING_CLIENT_FACTORY));
+	}
+
+	/**
+	 * Forget the commands recorded by the current thread
+	 */
+	public static void clear() {
+		if (GlobalConstants.COMMAND_TRACE_ENABLED) {
+			events.get().clear();
+		}
+	}
+
+	/**
+	 * Write the commands recorded by the current thread since the last clear to
+	 * COMMAND_TRACE_FOLDER_PATH, then clear them
+	 *
+	 * @param testName name of the trace file, without extension
+	 * @return the trace file, or null if no command was recorded
+	 */
+	public static File writeTrace(String testName) {
+		if (!GlobalConstants.COMMAND_TRACE_ENABLED) {
+			return null;
+		}
+		List<TraceEvent> recorded = events.get();
+		if (recorded.isEmpty()) {
+			return null;
+		}
+		Map<String, Object> trace = new LinkedHashMap<String, Object>();
+		trace.put("traceEvents", new ArrayList<TraceEvent>(recorded));
+		trace.put("displayTimeUnit", "ms");
+		recorded.clear();
+
+		File file = new File(GlobalConstants.COMMAND_TRACE_FOLDER_PATH,
+				testName.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + traceCount.incrementAndGet() + ".json");
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+				new Gson().toJson(trace, writer);
+			}
+		} catch (IOException e) {
+			log.info("Command trace of " + testName + " can not be written: " + e.getMessage());
+			return null;
+		}
+		return file;
+	}
+
+	/**
+	 * @return number of commands recorded by the current thread since the last
+	 *         clear
+	 */
+	public static int getCommandCount() {
+		return GlobalConstants.COMMAND_TRACE_ENABLED ? events.get().size() : 0;
+	}
+
+	/**
+	 * @return commands that were not recorded because a thread reached
+	 *         COMMAND_TRACE_LIMIT
+	 */
+	public static long getDroppedCount() {
+		return dropped.get();
+	}
+
+	private static void record(Command command, long startNanos, long durationNanos, long[] exchange, String error) {
+		List<TraceEvent> recorded = events.get();
+		if (recorded.size() >= GlobalConstants.COMMAND_TRACE_LIMIT) {
+			dropped.incrementAndGet();
+			return;
+		}
+		long serverNanos = exchange[SERVER_NANOS];
+		Map<String, Object> args = new LinkedHashMap<String, Object>();
+		args.put("caller", findCaller());
+		args.put("serverMicros", serverNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(serverNanos));
+		args.put("clientMicros", serverNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(durationNanos - serverNanos));
+		args.put("requestBytes", exchange[REQUEST_BYTES]);
+		args.put("responseBytes", exchange[RESPONSE_BYTES]);
+		if (error != null) {
+			args.put("error", error);
+		}
+		recorded.add(new TraceEvent(command.getName(), TimeUnit.NANOSECONDS.toMicros(startNanos - ORIGIN),
+				TimeUnit.NANOSECONDS.toMicros(durationNanos), Thread.currentThread().getId(), args));
+	}
+
+	/**
+	 * @return the first frame outside of Selenium and the JDK, such as
+	 *         BasePage.switchToWindowByTitle. The stack is walked lazily and only
+	 *         up to that frame.
+	 */
+	private static String findCaller() {
+		return stackWalker.walk(FIRST_CALLER);
+	}
+
+	private static boolean isInternal(String className) {
+		return className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.")
+				|| className.startsWith("com.sun.") || className.startsWith("org.openqa.")
+				|| className.startsWith(CommandTracer.class.getName());
+	}
+
+	/**
+	 * @return value of a Content-Length header, or -1 when it is missing
+	 */
+	private static long contentLength(String header) {
+		if (header != null) {
+			try {
+				return Long.parseLong(header.trim());
+			} catch (NumberFormatException e) {
+				// not a length
+			}
+		}
+		return -1;
+	}
+
+	private static final class TracingExecutor implements CommandExecutor {
+		TracingExecutor(DriverService service, CommandExecutor delegate) {
+			this.service = service;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Response execute(Command command) throws IOException {
+			if (DriverCommand.NEW_SESSION.equals(command.getName())) {
+				service.start();
+			}
+			long[] exchange = exchanges.get();
+			Arrays.fill(exchange, -1);
+			long start = System.nanoTime();
+			String error = null;
+			try {
+				return delegate.execute(command);
+			} catch (IOException | RuntimeException e) {
+				error = e.getClass().getSimpleName();
+				throw e;
+			} finally {
+				record(command, start, System.nanoTime() - start, exchange, error);
+				if (DriverCommand.QUIT.equals(command.getName())) {
+					service.stop();
+				}
+			}
+		}
+
+		private final DriverService service;
+		private final CommandExecutor delegate;
+	}
+
+	/**
+	 * Times the HTTP exchange of the command being executed by the thread, and
+	 * reads the size of its bodies from Content-Length, so the bodies are not
+	 * read twice. A request without the header has no body; a response without
+	 * it has a size of -1.
+	 */
+	private static final class TimingHttpClient implements HttpClient {
+		TimingHttpClient(HttpClient delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public HttpResponse execute(HttpRequest request) throws IOException {
+			long[] exchange = exchanges.get();
+			long requestBytes = contentLength(request.getHeader("Content-Length"));
+			exchange[REQUEST_BYTES] = requestBytes < 0 ? 0 : requestBytes;
+			long start = System.nanoTime();
+			HttpResponse response = delegate.execute(request);
+			exchange[SERVER_NANOS] = System.nanoTime() - start;
+			exchange[RESPONSE_BYTES] = contentLength(response.getHeader("Content-Length"));
+			return response;
+		}
+
+		private final HttpClient delegate;
+	}
+
+	/** Complete event of the Chrome trace-event format */
+	private static final class TraceEvent {
+		TraceEvent(String name, long ts, long dur, long tid, Map<String, Object> args) {
+			this.name = name;
+			this.ts = ts;
+			this.dur = dur;
+			this.tid = tid;
+			this.args = args;
+		}
+
+		final String name;
+		final String cat = "webdriver";
+		final String ph = "X";
+		final long ts;
+		final long dur;
+		final long pid = PID;
+		final long tid;
+		final Map<String, Object> args;
+	}
+
+	private static final long ORIGIN = System.nanoTime();
+	private static final long PID = ProcessHandle.current().pid();
+
+	private static final Log log = LogFactory.getLog(CommandTracer.class);
+
+	private static final HttpClient.Factory DEFAULT_CLIENT_FACTORY = HttpClient.Factory.createDefault();
+
+	// times the HTTP exchanges and reads the size of the bodies of every command
+	private static final HttpClient.Factory TIMING_CLIENT_FACTORY = new HttpClient.Factory() {
+		@Override
+		public HttpClient.Builder builder() {
+			return DEFAULT_CLIENT_FACTORY.builder();
+		}
+
+		@Override
+		public HttpClient createClient(URL url) {
+			return new TimingHttpClient(DEFAULT_CLIENT_FACTORY.createClient(url));
+		}
+
+		@Override
+		public void cleanupIdleClients() {
+			DEFAULT_CLIENT_FACTORY.cleanupIdleClients();
+		}
+	};
+
+	private static final int SERVER_NANOS = 0;
+	private static final int REQUEST_BYTES = 1;
+	private static final int RESPONSE_BYTES = 2;
+
+	private static final StackWalker stackWalker = StackWalker.getInstance();
+	private static final Function<Stream<StackWalker.StackFrame>, String> FIRST_CALLER = new Function<Stream<StackWalker.StackFrame>, String>() {
+		@Override
+		public String apply(Stream<StackWalker.StackFrame> frames) {
+			Iterator<StackWalker.StackFrame> iterator = frames.iterator();
+			while (iterator.hasNext()) {
+				StackWalker.StackFrame frame = iterator.next();
+				String className = frame.getClassName();
+				if (!isInternal(className)) {
+					return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+				}
+			}
+			return "unknown";
+		}
+	};
+
+	private static final AtomicLong traceCount = new AtomicLong();
+	private static final AtomicLong dropped = new AtomicLong();
+	// server nanos, request and response bytes of the command being executed
+	private static final ThreadLocal<long[]> exchanges = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[3];
+		}
+	};
+	private static final ThreadLocal<List<TraceEvent>> events = new ThreadLocal<List<TraceEvent>>() {
+		@Override
+		protected List<TraceEvent> initialValue() {
+			return new ArrayList<TraceEvent>();
+		}
+	};
+}
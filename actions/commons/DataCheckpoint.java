@@ -0,0 +1,147 @@
+package commons;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Append-only list of the records of a data file shard that were processed,
+ * one index per line, under CHECKPOINT_FOLDER_PATH. A run that stopped part way
+ * is resumed by skipping these records. The checkpoint is named after the data
+ * file and a hash of its absolute path, so data files of the same name in
+ * different folders do not share it.
+ *
+ * The first line holds the size and modification time of the data file. When
+ * the data file changed, its indexes no longer match and the checkpoint starts
+ * over.
+ */
+public class DataCheckpoint {
+	private DataCheckpoint(File dataFile, File checkpointFile) throws IOException {
+		this.checkpointFile = checkpointFile;
+		String signature = "# " + dataFile.length() + " " + dataFile.lastModified();
+		if (checkpointFile.isFile()) {
+			try (BufferedReader reader = Files.newBufferedReader(checkpointFile.toPath(), StandardCharsets.UTF_8)) {
+				if (signature.equals(reader.readLine())) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						try {
+							done.set(Integer.parseInt(line.trim()));
+						} catch (NumberFormatException e) {
+							// last line cut by a crash
+						}
+					}
+				} else {
+					log.info("Data file " + dataFile + " changed, checkpoint " + checkpointFile + " starts over");
+					Files.delete(checkpointFile.toPath());
+				}
+			}
+		}
+		Files.createDirectories(checkpointFile.getParentFile().toPath());
+		boolean created = !checkpointFile.isFile();
+		writer = Files.newBufferedWriter(checkpointFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+		if (created) {
+			writer.write(signature + "\n");
+			writer.flush();
+		}
+	}
+
+	/**
+	 * @param dataFile
+	 * @param shardIndex
+	 * @param shardCount
+	 * @return the checkpoint of the shard, shared by every reader of the shard
+	 */
+	public static DataCheckpoint forShard(File dataFile, int shardIndex, int shardCount) {
+		File checkpointFile = new File(GlobalConstants.CHECKPOINT_FOLDER_PATH, dataFile.getName() + "-"
+				+ hashPath(dataFile) + ".shard" + shardIndex + "of" + shardCount + ".done");
+		String key = checkpointFile.getAbsolutePath();
+		DataCheckpoint checkpoint = checkpoints.get(key);
+		if (checkpoint == null) {
+			synchronized (checkpoints) {
+				checkpoint = checkpoints.get(key);
+				if (checkpoint == null) {
+					try {
+						checkpoint = new DataCheckpoint(dataFile, checkpointFile);
+					} catch (IOException e) {
+						throw new RuntimeException("Checkpoint " + checkpointFile + " can not be opened", e);
+					}
+					checkpoints.put(key, checkpoint);
+				}
+			}
+		}
+		return checkpoint;
+	}
+
+	public synchronized boolean isDone(long index) {
+		return done.get(toBit(index));
+	}
+
+	/**
+	 * Append the index of a processed record, flushed at once so it survives a
+	 * crash of the run
+	 *
+	 * @param index
+	 */
+	public synchronized void markDone(long index) {
+		int bit = toBit(index);
+		if (done.get(bit)) {
+			return;
+		}
+		done.set(bit);
+		try {
+			writer.write(bit + "\n");
+			writer.flush();
+		} catch (IOException e) {
+			log.info("Checkpoint " + checkpointFile + " can not be written: " + e.getMessage());
+		}
+	}
+
+	public synchronized int getDoneCount() {
+		return done.cardinality();
+	}
+
+	/**
+	 * @return first 12 hex digits of the SHA-256 of the normalized absolute path
+	 */
+	private static String hashPath(File file) {
+		String path = file.getAbsoluteFile().toPath().normalize().toString();
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for (int i = 0; i < 6; i++) {
+				hex.append(String.format("%02x", digest[i]));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 is not available", e);
+		}
+	}
+
+	private static int toBit(long index) {
+		if (index < 0 || index > Integer.MAX_VALUE) {
+			throw new RuntimeException("Record index " + index + " is out of range");
+		}
+		return (int) index;
+	}
+
+	private static final Log log = LogFactory.getLog(DataCheckpoint.class);
+
+	private static final Map<String, DataCheckpoint> checkpoints = new ConcurrentHashMap<String, DataCheckpoint>();
+
+	private final File checkpointFile;
+	private final BitSet done = new BitSet();
+	private final Writer writer;
+}
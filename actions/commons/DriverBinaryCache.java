@@ -0,0 +1,136 @@
+package commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import io.github.bonigarcia.wdm.config.DriverManagerType;
+
+/**
+ * Resolves each driver binary once per JVM. Resolved binaries are recorded in a
+ * manifest under DRIVER_CACHE_FOLDER_PATH, so later runs only check that the
+ * file is still there: no version lookup, no network, no scan of the
+ * WebDriverManager cache.
+ *
+ * The path is returned to the caller, which gives it to its driver service. No
+ * webdriver.*.driver system property is set, so browsers launched at the same
+ * time on several threads do not overwrite each other's binary.
+ *
+ * WebDriverManager is only called when the manifest has no usable entry, or
+ * when the entry is older than DRIVER_CACHE_TTL_DAYS to pick up new browser
+ * versions. If that refresh fails, for example offline, the old binary is kept.
+ * With DRIVER_CACHE_OFFLINE, a recorded binary is never refreshed.
+ */
+public class DriverBinaryCache {
+	private DriverBinaryCache() {
+		manifestFile = new File(GlobalConstants.DRIVER_CACHE_FOLDER_PATH, "manifest.properties");
+		manifest = readManifest();
+	}
+
+	// Singleton Pattern
+	public static DriverBinaryCache getCache() {
+		return Holder.CACHE;
+	}
+
+	/**
+	 * Find the driver binary of the type. Only the first call for a type does any
+	 * work.
+	 *
+	 * @param type driver type, such as DriverManagerType.CHROME
+	 * @return path of the driver binary
+	 */
+	public String resolve(DriverManagerType type) {
+		String path = resolved.get(type);
+		if (path == null) {
+			synchronized (this) {
+				path = resolved.get(type);
+				if (path == null) {
+					path = lookup(type);
+					resolved.put(type, path);
+				}
+			}
+		}
+		return path;
+	}
+
+	private String lookup(DriverManagerType type) {
+		String path = manifest.getProperty(type.name() + ".path");
+		boolean usable = path != null && new File(path).canExecute();
+		if (usable) {
+			long resolvedAt = Long.parseLong(manifest.getProperty(type.name() + ".resolvedAt", "0"));
+			boolean fresh = System.currentTimeMillis() - resolvedAt < TimeUnit.DAYS
+					.toMillis(GlobalConstants.DRIVER_CACHE_TTL_DAYS);
+			if (fresh || GlobalConstants.DRIVER_CACHE_OFFLINE) {
+				return path;
+			}
+		} else if (GlobalConstants.DRIVER_CACHE_OFFLINE) {
+			throw new RuntimeException("No " + type + " driver in " + manifestFile + " and the driver cache is offline");
+		}
+
+		try {
+			WebDriverManager manager = WebDriverManager.getInstance(type);
+			manager.cachePath(GlobalConstants.DRIVER_CACHE_FOLDER_PATH).avoidExport().setup();
+			path = manager.getDownloadedDriverPath();
+			manifest.setProperty(type.name() + ".path", path);
+			manifest.setProperty(type.name() + ".version", String.valueOf(manager.getDownloadedDriverVersion()));
+			manifest.setProperty(type.name() + ".resolvedAt", String.valueOf(System.currentTimeMillis()));
+			writeManifest();
+			log.info("Resolved " + type + " driver " + manager.getDownloadedDriverVersion() + " at " + path);
+			return path;
+		} catch (RuntimeException e) {
+			if (usable) {
+				log.info("Could not refresh the " + type + " driver, keeping " + path + ": " + e.getMessage());
+				return path;
+			}
+			throw e;
+		}
+	}
+
+	private Properties readManifest() {
+		Properties properties = new Properties();
+		if (manifestFile.isFile()) {
+			try (Reader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			} catch (IOException e) {
+				log.info("Driver manifest can not be read: " + e.getMessage());
+			}
+		}
+		return properties;
+	}
+
+	private void writeManifest() {
+		try {
+			Files.createDirectories(manifestFile.getParentFile().toPath());
+			File temp = new File(manifestFile.getPath() + ".tmp");
+			try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+				manifest.store(writer, "Driver binaries resolved by DriverBinaryCache");
+			}
+			Files.move(temp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			log.info("Driver manifest can not be saved: " + e.getMessage());
+		}
+	}
+
+	private static class Holder {
+		static final DriverBinaryCache CACHE = new DriverBinaryCache();
+	}
+
+	private static final Log log = LogFactory.getLog(DriverBinaryCache.class);
+
+	private final File manifestFile;
+	private final Properties manifest;
+	private final Map<DriverManagerType, String> resolved = new ConcurrentHashMap<DriverManagerType, String>();
+}
@@ -0,0 +1,46 @@
+package commons;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Registry of the driver owned by each test thread. TestNG runs with
+ * parallel="methods" share one test class instance between threads, so the
+ * driver must not be kept in an instance field.
+ */
+public final class DriverManager {
+	private DriverManager() {
+	}
+
+	/**
+	 * @return the driver owned by the current thread, or null if it has none
+	 */
+	public static WebDriver getDriver() {
+		return drivers.get();
+	}
+
+	/**
+	 * @return number of threads currently owning a driver
+	 */
+	public static int getActiveDriverCount() {
+		return activeDrivers.get();
+	}
+
+	static void setDriver(WebDriver driver) {
+		if (drivers.get() == null) {
+			activeDrivers.incrementAndGet();
+		}
+		drivers.set(driver);
+	}
+
+	static void removeDriver() {
+		if (drivers.get() != null) {
+			activeDrivers.decrementAndGet();
+		}
+		drivers.remove();
+	}
+
+	private static final ThreadLocal<WebDriver> drivers = new ThreadLocal<WebDriver>();
+	private static final AtomicInteger activeDrivers = new AtomicInteger();
+}
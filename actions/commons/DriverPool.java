@@ -0,0 +1,404 @@
+package commons;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Bounded pool of warm browser sessions, one bucket per {@link BrowserProfile}.
+ * A test leases a session, and gives it back when it's done. Sessions are reset
+ * (cookies, storage, extra windows, start page) before they are reused, and are
+ * only handed to the {@link DriverReaper} when a reset fails or the JVM exits.
+ *
+ * A bucket never holds more than DRIVER_POOL_SIZE live sessions: leased, idle
+ * and being launched together. A lease or a prewarm reserves a place before it
+ * launches a browser, and the place is only given back when the session is
+ * quit.
+ */
+public class DriverPool {
+	private DriverPool() {
+		this(GlobalConstants.DRIVER_POOL_SIZE);
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				shutdown();
+			}
+		}, "driver-pool-shutdown"));
+	}
+
+	/**
+	 * @param poolSize maximum number of live sessions per profile
+	 */
+	DriverPool(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	// Singleton Pattern
+	public static DriverPool getPool() {
+		return Holder.POOL;
+	}
+
+	/**
+	 * Lease a session of the given profile, which is opened at the application
+	 * URL. A warm session is reused when one is idle, otherwise a new browser is
+	 * launched. Waits up to LONG_TIMEOUT when all sessions of the profile are in
+	 * use.
+	 *
+	 * @param profile browser and capabilities of the session
+	 * @param appURL  URL the session must be opened at
+	 * @return the leased driver
+	 */
+	public WebDriver lease(BrowserProfile profile, String appURL) {
+		Bucket bucket = getBucket(profile);
+		long start = System.nanoTime();
+		PooledSession session;
+		try {
+			session = bucket.takeOrReserve(start + TimeUnit.SECONDS.toNanos(GlobalConstants.LONG_TIMEOUT));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a " + profile.getBrowser() + " session", e);
+		}
+		if (session == TIMED_OUT) {
+			throw new RuntimeException("Timed out waiting for a free " + profile.getBrowser() + " session");
+		}
+		long waited = System.nanoTime() - start;
+		leaseWaitNanos.addAndGet(waited);
+		updateMax(maxLeaseWaitNanos, waited);
+
+		WebDriver driver = null;
+		try {
+			if (session != RESERVED) {
+				hits.incrementAndGet();
+				driver = session.driver;
+				if (!appURL.equals(session.appURL)) {
+					session.driver.get(appURL);
+					session.appURL = appURL;
+				}
+			} else {
+				misses.incrementAndGet();
+				driver = launch(profile);
+				session = new PooledSession(profile, driver, appURL);
+				driver.get(appURL);
+				PageLoadStats.record(driver);
+			}
+		} catch (RuntimeException e) {
+			discard(bucket, driver);
+			throw e;
+		}
+		leased.put(session.driver, session);
+		return session.driver;
+	}
+
+	/**
+	 * Give a leased session back to the pool. The session is reset before it can
+	 * be leased again.
+	 *
+	 * @param driver driver returned by {@link #lease(BrowserProfile, String)}
+	 * @return false if the driver does not belong to the pool or could not be
+	 *         reset, in which case the caller is responsible for quitting it
+	 */
+	public boolean release(WebDriver driver) {
+		PooledSession session = leased.remove(driver);
+		if (session == null) {
+			return false;
+		}
+		Bucket bucket = getBucket(session.profile);
+		if (closed || !reset(session)) {
+			discarded.incrementAndGet();
+			// the caller quits the driver: its place is free from now on
+			bucket.free();
+			return false;
+		}
+		bucket.offer(session, true);
+		return true;
+	}
+
+	/**
+	 * Launch a session of the profile ahead of time and keep it idle, so the next
+	 * lease does not wait for a cold browser. Does nothing when the profile
+	 * already has DRIVER_POOL_SIZE live sessions, idle, leased or being launched.
+	 *
+	 * @param profile browser and capabilities of the session
+	 * @param appURL  URL the session is opened at
+	 * @return true if a session was added to the pool
+	 */
+	public boolean prewarm(BrowserProfile profile, String appURL) {
+		Bucket bucket = getBucket(profile);
+		if (closed || !bucket.tryReserve()) {
+			return false;
+		}
+		WebDriver driver = null;
+		try {
+			driver = launch(profile);
+			driver.get(appURL);
+		} catch (RuntimeException e) {
+			log.info("Session of " + profile.getBrowser() + " could not be prewarmed: " + e.getMessage());
+			discard(bucket, driver);
+			return false;
+		}
+		if (closed) {
+			discard(bucket, driver);
+			return false;
+		}
+		bucket.offer(new PooledSession(profile, driver, appURL), false);
+		prewarmed.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Quit every idle session. Leased sessions are quit by their owner on release.
+	 */
+	public void shutdown() {
+		closed = true;
+		for (Bucket bucket : buckets.values()) {
+			PooledSession session;
+			while ((session = bucket.poll()) != null) {
+				discard(bucket, session.driver);
+			}
+		}
+		DriverReaper.getReaper().drain(GlobalConstants.DRIVER_QUIT_TIMEOUT * 2);
+		log.info("Driver pool statistics: " + this);
+		log.info("Driver reaper statistics: " + DriverReaper.getReaper());
+		log.info("Explicit wait statistics: " + WaitFactory.getStatistics());
+		if (GlobalConstants.PAGE_LOAD_STATS_ENABLED) {
+			log.info("Page load statistics: " + PageLoadStats.getStatistics());
+		}
+		if (GlobalConstants.RESOURCE_FILTER_ENABLED) {
+			log.info("Resource filter statistics: " + ResourceFilterProxy.getProxy());
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getDiscardCount() {
+		return discarded.get();
+	}
+
+	public long getPrewarmCount() {
+		return prewarmed.get();
+	}
+
+	/**
+	 * @param profile
+	 * @return number of live sessions of the profile: leased, idle and being
+	 *         launched
+	 */
+	public int getLiveCount(BrowserProfile profile) {
+		Bucket bucket = buckets.get(profile);
+		return bucket == null ? 0 : bucket.getLive();
+	}
+
+	/**
+	 * @return total time tests spent waiting for a free session, in milliseconds
+	 */
+	public long getTotalLeaseWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(leaseWaitNanos.get());
+	}
+
+	/**
+	 * @return longest time a single test waited for a free session, in
+	 *         milliseconds
+	 */
+	public long getMaxLeaseWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxLeaseWaitNanos.get());
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + getHitCount() + ", misses=" + getMissCount() + ", discarded=" + getDiscardCount()
+				+ ", prewarmed=" + getPrewarmCount() + ", leaseWaitTotalMs=" + getTotalLeaseWaitMillis()
+				+ ", leaseWaitMaxMs=" + getMaxLeaseWaitMillis();
+	}
+
+	private boolean reset(PooledSession session) {
+		WebDriver driver = session.driver;
+		try {
+			Set<String> allWindows = driver.getWindowHandles();
+			String firstWindow = allWindows.iterator().next();
+			for (String runWindow : allWindows) {
+				if (!runWindow.equals(firstWindow)) {
+					driver.switchTo().window(runWindow);
+					driver.close();
+				}
+			}
+			driver.switchTo().window(firstWindow);
+			TimeoutManager.forDriver(driver).applyDefaults();
+			driver.manage().deleteAllCookies();
+			((JavascriptExecutor) driver).executeScript("window.localStorage.clear(); window.sessionStorage.clear();");
+			driver.get(session.appURL);
+			return true;
+		} catch (RuntimeException e) {
+			log.info("Session of " + session.profile.getBrowser() + " could not be reset: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Start a new browser session, overridden by tests
+	 */
+	WebDriver launch(BrowserProfile profile) {
+		return profile.launch();
+	}
+
+	/**
+	 * Quit a session in the background, overridden by tests
+	 */
+	void quit(WebDriver driver) {
+		DriverReaper.getReaper().reap(driver);
+	}
+
+	/**
+	 * Quit a session of the bucket, or nothing when its launch failed, and give
+	 * its place back
+	 */
+	private void discard(Bucket bucket, WebDriver driver) {
+		try {
+			if (driver != null) {
+				quit(driver);
+			}
+		} finally {
+			bucket.free();
+		}
+	}
+
+	private Bucket getBucket(BrowserProfile profile) {
+		Bucket bucket = buckets.get(profile);
+		if (bucket == null) {
+			Bucket created = new Bucket(poolSize);
+			bucket = buckets.putIfAbsent(profile, created);
+			if (bucket == null) {
+				bucket = created;
+			}
+		}
+		return bucket;
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// retry until the larger value is stored
+		}
+	}
+
+	/**
+	 * Idle sessions of a profile and the number of live sessions, guarded by the
+	 * bucket. Waiting leases are woken when a session becomes idle or a place is
+	 * freed.
+	 */
+	private static class Bucket {
+		Bucket(int size) {
+			this.size = size;
+		}
+
+		/**
+		 * @param deadline System.nanoTime() after which to give up
+		 * @return an idle session, RESERVED when a place was reserved for a new
+		 *         session, or TIMED_OUT
+		 */
+		synchronized PooledSession takeOrReserve(long deadline) throws InterruptedException {
+			while (true) {
+				PooledSession session = idle.pollFirst();
+				if (session != null) {
+					return session;
+				}
+				if (live < size) {
+					live++;
+					return RESERVED;
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return TIMED_OUT;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+		}
+
+		synchronized boolean tryReserve() {
+			if (live >= size) {
+				return false;
+			}
+			live++;
+			return true;
+		}
+
+		/**
+		 * @param session live session to keep idle
+		 * @param first   true to reuse it before the others, the warmest first
+		 */
+		synchronized void offer(PooledSession session, boolean first) {
+			if (first) {
+				idle.offerFirst(session);
+			} else {
+				idle.offerLast(session);
+			}
+			notify();
+		}
+
+		synchronized PooledSession poll() {
+			return idle.pollFirst();
+		}
+
+		/**
+		 * Give back the place of a session that was quit, or never launched
+		 */
+		synchronized void free() {
+			live--;
+			notify();
+		}
+
+		synchronized int getLive() {
+			return live;
+		}
+
+		private final int size;
+		private final Deque<PooledSession> idle = new ArrayDeque<PooledSession>();
+		private int live;
+	}
+
+	private static class PooledSession {
+		PooledSession(BrowserProfile profile, WebDriver driver, String appURL) {
+			this.profile = profile;
+			this.driver = driver;
+			this.appURL = appURL;
+		}
+
+		final BrowserProfile profile;
+		final WebDriver driver;
+		String appURL;
+	}
+
+	private static class Holder {
+		static final DriverPool POOL = new DriverPool();
+	}
+
+	private static final Log log = LogFactory.getLog(DriverPool.class);
+	private static final PooledSession RESERVED = new PooledSession(null, null, null);
+	private static final PooledSession TIMED_OUT = new PooledSession(null, null, null);
+
+	private final int poolSize;
+
+	private final Map<BrowserProfile, Bucket> buckets = new ConcurrentHashMap<BrowserProfile, Bucket>();
+	private final Map<WebDriver, PooledSession> leased = new ConcurrentHashMap<WebDriver, PooledSession>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+	private final AtomicLong prewarmed = new AtomicLong();
+	private final AtomicLong leaseWaitNanos = new AtomicLong();
+	private final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+	private volatile boolean closed;
+}
@@ -0,0 +1,266 @@
+package commons;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.service.DriverService;
+
+/**
+ * Quits browser sessions on a background executor. Each session remembers the
+ * PID of its own driver service (chromedriver, geckodriver...), so a session
+ * that does not quit within DRIVER_QUIT_TIMEOUT is killed alone, together with
+ * the browser processes it started, instead of killing every driver of the
+ * machine.
+ */
+public class DriverReaper {
+	private DriverReaper() {
+		reaper = Executors.newCachedThreadPool(new NamedThreadFactory("driver-reaper"));
+		quitter = Executors.newCachedThreadPool(new NamedThreadFactory("driver-quit"));
+	}
+
+	// Singleton Pattern
+	public static DriverReaper getReaper() {
+		return Holder.REAPER;
+	}
+
+	/**
+	 * Remember the driver service that runs a session. Must be called right after
+	 * the driver is created, while the service process is running.
+	 *
+	 * @param driver  the new session
+	 * @param service the service the session was started with
+	 */
+	public void register(WebDriver driver, DriverService service) {
+		sessions.put(driver, new DriverProcess(service, findServicePid(service)));
+	}
+
+	/**
+	 * Quit the session in the background. Returns immediately.
+	 *
+	 * @param driver session to quit
+	 */
+	public void reap(final WebDriver driver) {
+		final DriverProcess process = sessions.remove(driver);
+		TimeoutManager.remove(driver);
+		WindowRegistry.remove(driver);
+		pending.incrementAndGet();
+		reaper.execute(new Runnable() {
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				try {
+					teardown(driver, process);
+				} finally {
+					long elapsed = System.nanoTime() - start;
+					reaped.incrementAndGet();
+					teardownNanos.addAndGet(elapsed);
+					updateMax(maxTeardownNanos, elapsed);
+					pending.decrementAndGet();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Wait for the sessions already handed to the reaper to be torn down
+	 *
+	 * @param timeoutInSecond maximum time to wait
+	 */
+	public void drain(int timeoutInSecond) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutInSecond);
+		while (pending.get() > 0 && System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	public long getReapedCount() {
+		return reaped.get();
+	}
+
+	/**
+	 * @return number of sessions that did not quit in time and were killed
+	 */
+	public long getKilledCount() {
+		return killed.get();
+	}
+
+	/**
+	 * @return number of driver processes still alive after being killed, or whose
+	 *         PID was unknown when quit failed
+	 */
+	public long getLeakedCount() {
+		return leaked.get();
+	}
+
+	public long getAverageTeardownMillis() {
+		long count = reaped.get();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(teardownNanos.get() / count);
+	}
+
+	public long getMaxTeardownMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxTeardownNanos.get());
+	}
+
+	@Override
+	public String toString() {
+		return "reaped=" + getReapedCount() + ", killed=" + getKilledCount() + ", leaked=" + getLeakedCount()
+				+ ", teardownAvgMs=" + getAverageTeardownMillis() + ", teardownMaxMs=" + getMaxTeardownMillis();
+	}
+
+	private void teardown(final WebDriver driver, DriverProcess process) {
+		Future<?> quit = quitter.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					driver.quit();
+				} finally {
+					// commands sent by this thread belong to no test
+					CommandTracer.clear();
+				}
+			}
+		});
+		try {
+			quit.get(GlobalConstants.DRIVER_QUIT_TIMEOUT, TimeUnit.SECONDS);
+			return;
+		} catch (TimeoutException e) {
+			quit.cancel(true);
+			log.info("Driver did not quit within " + GlobalConstants.DRIVER_QUIT_TIMEOUT + "s, killing it");
+		} catch (ExecutionException e) {
+			log.info("Driver quit failed: " + e.getCause().getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		kill(process);
+	}
+
+	private void kill(DriverProcess process) {
+		if (process == null) {
+			leaked.incrementAndGet();
+			return;
+		}
+		if (process.pid < 0) {
+			// PID unknown, the service can still destroy the process it started
+			try {
+				process.service.stop();
+			} catch (RuntimeException e) {
+				log.info(e.getMessage());
+			}
+			if (process.service.isRunning()) {
+				leaked.incrementAndGet();
+			}
+			return;
+		}
+		killed.incrementAndGet();
+		Optional<ProcessHandle> handle = ProcessHandle.of(process.pid);
+		if (!handle.isPresent()) {
+			return;
+		}
+		Iterator<ProcessHandle> descendants = handle.get().descendants().iterator();
+		while (descendants.hasNext()) {
+			descendants.next().destroyForcibly();
+		}
+		handle.get().destroyForcibly();
+		try {
+			handle.get().onExit().get(GlobalConstants.DRIVER_QUIT_TIMEOUT, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			leaked.incrementAndGet();
+			log.info("Driver process " + process.pid + " is still alive");
+		}
+	}
+
+	/**
+	 * Driver services are started by this JVM with a --port=N argument, so the
+	 * service process is the child with exactly this argument: --port=44441 is
+	 * the driver of another session when the port is 4444.
+	 */
+	private static long findServicePid(DriverService service) {
+		String portArgument = "--port=" + service.getUrl().getPort();
+		Iterator<ProcessHandle> children = ProcessHandle.current().children().iterator();
+		while (children.hasNext()) {
+			ProcessHandle child = children.next();
+			if (hasArgument(child.info(), portArgument)) {
+				return child.pid();
+			}
+		}
+		return -1;
+	}
+
+	private static boolean hasArgument(ProcessHandle.Info info, String argument) {
+		Optional<String[]> arguments = info.arguments();
+		if (arguments.isPresent()) {
+			return Arrays.asList(arguments.get()).contains(argument);
+		}
+		// some platforms only give the whole command line
+		Optional<String> commandLine = info.commandLine();
+		return commandLine.isPresent() && Arrays.asList(commandLine.get().split("\\s+")).contains(argument);
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// retry until the larger value is stored
+		}
+	}
+
+	private static class DriverProcess {
+		DriverProcess(DriverService service, long pid) {
+			this.service = service;
+			this.pid = pid;
+		}
+
+		final DriverService service;
+		final long pid;
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger();
+	}
+
+	private static class Holder {
+		static final DriverReaper REAPER = new DriverReaper();
+	}
+
+	private static final Log log = LogFactory.getLog(DriverReaper.class);
+
+	private final ExecutorService reaper;
+	private final ExecutorService quitter;
+	private final Map<WebDriver, DriverProcess> sessions = new ConcurrentHashMap<WebDriver, DriverProcess>();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicLong reaped = new AtomicLong();
+	private final AtomicLong killed = new AtomicLong();
+	private final AtomicLong leaked = new AtomicLong();
+	private final AtomicLong teardownNanos = new AtomicLong();
+	private final AtomicLong maxTeardownNanos = new AtomicLong();
+}
@@ -0,0 +1,111 @@
+package commons;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * State of an element read in the browser by a single script: tag, text,
+ * attributes and displayed/enabled/selected flags.
+ */
+public final class ElementState {
+
+	ElementState(String locator, boolean present, String tagName, String text, Map<String, String> attributes,
+			boolean displayed, boolean enabled, boolean selected) {
+		this.locator = locator;
+		this.present = present;
+		this.tagName = tagName;
+		this.text = text;
+		this.attributes = attributes == null ? Collections.<String, String>emptyMap()
+				: Collections.unmodifiableMap(attributes);
+		this.displayed = displayed;
+		this.enabled = enabled;
+		this.selected = selected;
+	}
+
+	static ElementState missing(String locator) {
+		return new ElementState(locator, false, null, null, null, false, false, false);
+	}
+
+	public String getLocator() {
+		return locator;
+	}
+
+	/**
+	 * @return false if no element matched the locator when the state was read
+	 */
+	public boolean isPresent() {
+		return present;
+	}
+
+	public String getTagName() {
+		return tagName;
+	}
+
+	/**
+	 * @return the visible text of the element, trimmed, or an empty string if it
+	 *         is not displayed, like WebElement.getText
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @param name
+	 * @return value of the attribute as WebElement.getAttribute reads it, or null
+	 *         if the element does not have it: "true" or null for boolean
+	 *         attributes such as checked or disabled, absolute URLs for href and
+	 *         src, the current value for "value"
+	 */
+	public String getAttribute(String name) {
+		return attributes.get(name.toLowerCase());
+	}
+
+	/**
+	 * @param name
+	 * @return true if {@link #getAttribute(String)} answers like
+	 *         WebElement.getAttribute: the element has the attribute, or the
+	 *         attribute is "value" or a boolean attribute. Other names may be
+	 *         DOM properties, which the state does not hold.
+	 */
+	public boolean hasAttributeValue(String name) {
+		return attributes.containsKey(name.toLowerCase());
+	}
+
+	public Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * @return true if the element has a size and is not hidden by CSS. This is an
+	 *         approximation of WebElement.isDisplayed computed in the page.
+	 */
+	public boolean isDisplayed() {
+		return displayed;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public boolean isSelected() {
+		return selected;
+	}
+
+	@Override
+	public String toString() {
+		if (!present) {
+			return locator + " (not present)";
+		}
+		return locator + " <" + tagName + "> displayed=" + displayed + ", enabled=" + enabled + ", selected="
+				+ selected + ", text=" + text;
+	}
+
+	private final String locator;
+	private final boolean present;
+	private final String tagName;
+	private final String text;
+	private final Map<String, String> attributes;
+	private final boolean displayed;
+	private final boolean enabled;
+	private final boolean selected;
+}
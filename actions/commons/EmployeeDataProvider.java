@@ -0,0 +1,94 @@
+package commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.ITestContext;
+import org.testng.annotations.DataProvider;
+import org.testng.xml.XmlTest;
+
+/**
+ * Streams employee records to a test, one invocation per record:
+ *
+ * <pre>
+ * &#64;Test(dataProvider = "employees", dataProviderClass = EmployeeDataProvider.class)
+ * public void TC_01_Add_Employee(EmployeeRecord employee) {
+ * </pre>
+ *
+ * The records are read lazily from the employeeData parameter of the
+ * &lt;test&gt;, relative to PROJECT_PATH (EMPLOYEE_DATA_FILE by default).
+ * Record i belongs to shard i % shardCount: a suite with one &lt;test&gt; per
+ * shardIndex and parallel="tests" spreads the file over that many threads,
+ * each with its own driver. Records a previous run already created are
+ * skipped, see {@link DataCheckpoint}.
+ */
+public class EmployeeDataProvider {
+
+	@DataProvider(name = "employees")
+	public static Iterator<Object[]> getEmployees(ITestContext context) throws IOException {
+		XmlTest test = context.getCurrentXmlTest();
+		String dataFile = test.getParameter("employeeData");
+		File file = dataFile == null ? new File(GlobalConstants.EMPLOYEE_DATA_FILE) : new File(dataFile.trim());
+		if (!file.isAbsolute()) {
+			// like EMPLOYEE_DATA_FILE, relative to the project
+			file = new File(GlobalConstants.PROJECT_PATH, file.getPath());
+		}
+		int shardIndex = getIntParameter(test, "shardIndex", 0);
+		int shardCount = getIntParameter(test, "shardCount", 1);
+		if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+			throw new RuntimeException("Invalid shard " + shardIndex + " of " + shardCount);
+		}
+		DataCheckpoint checkpoint = DataCheckpoint.forShard(file, shardIndex, shardCount);
+		log.info("Reading shard " + shardIndex + " of " + shardCount + " of " + file + ", "
+				+ checkpoint.getDoneCount() + " records already done");
+		return new ShardIterator(EmployeeRecordReader.open(file), shardIndex, shardCount, checkpoint);
+	}
+
+	private static int getIntParameter(XmlTest test, String name, int defaultValue) {
+		String value = test.getParameter(name);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	private static final class ShardIterator implements Iterator<Object[]> {
+		ShardIterator(EmployeeRecordReader records, int shardIndex, int shardCount, DataCheckpoint checkpoint) {
+			this.records = records;
+			this.shardIndex = shardIndex;
+			this.shardCount = shardCount;
+			this.checkpoint = checkpoint;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && records.hasNext()) {
+				EmployeeRecord record = records.next();
+				if (record.getIndex() % shardCount == shardIndex && !checkpoint.isDone(record.getIndex())) {
+					record.setCheckpoint(checkpoint);
+					next = record;
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public Object[] next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			EmployeeRecord record = next;
+			next = null;
+			return new Object[] { record };
+		}
+
+		private final EmployeeRecordReader records;
+		private final int shardIndex;
+		private final int shardCount;
+		private final DataCheckpoint checkpoint;
+		private EmployeeRecord next;
+	}
+
+	private static final Log log = LogFactory.getLog(EmployeeDataProvider.class);
+}
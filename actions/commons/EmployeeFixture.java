@@ -0,0 +1,101 @@
+package commons;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openqa.selenium.WebDriver;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Creates OrangeHRM employees through the PIM REST endpoint of OrangeHRM 5, for
+ * tests whose subject is not the creation itself, such as editing an employee.
+ */
+public class EmployeeFixture {
+	public EmployeeFixture(FixtureClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * @param driver logged in driver, whose session is reused
+	 * @return a fixture against FIXTURE_BASE_URL
+	 */
+	public static EmployeeFixture forDriver(WebDriver driver) {
+		return forDriver(driver, GlobalConstants.FIXTURE_BASE_URL);
+	}
+
+	/**
+	 * @param driver  logged in driver, whose session is reused
+	 * @param baseUrl
+	 * @return a fixture against baseUrl
+	 */
+	public static EmployeeFixture forDriver(WebDriver driver, String baseUrl) {
+		return new EmployeeFixture(FixtureClient.forDriver(driver, baseUrl));
+	}
+
+	/**
+	 * @param employee
+	 * @return the empNumber of the new employee
+	 */
+	public String createEmployee(EmployeeRecord employee) {
+		return createEmployee(employee.getFirstName(), employee.getMiddleName(), employee.getLastName(),
+				employee.getEmployeeId());
+	}
+
+	/**
+	 * @param firstName
+	 * @param middleName
+	 * @param lastName
+	 * @param employeeId
+	 * @return the empNumber of the new employee
+	 */
+	public String createEmployee(String firstName, String middleName, String lastName, String employeeId) {
+		Map<String, String> employee = new LinkedHashMap<String, String>();
+		employee.put("firstName", firstName);
+		employee.put("middleName", middleName == null ? "" : middleName);
+		employee.put("lastName", lastName);
+		employee.put("employeeId", employeeId == null ? "" : employeeId);
+
+		FixtureClient.Response result = client.postJson(EMPLOYEES_PATH, gson.toJson(employee));
+		if (result.getStatus() == 401) {
+			throw new RuntimeException("Employee API returned 401, is the session logged in?");
+		}
+		String empNumber = result.getStatus() == 200 ? findEmpNumber(result.getBody()) : null;
+		if (empNumber == null) {
+			throw new RuntimeException("Employee " + firstName + " " + lastName + " was not created, status "
+					+ result.getStatus() + " at " + result.getUrl() + ": " + abbreviate(result.getBody()));
+		}
+		return empNumber;
+	}
+
+	/**
+	 * @param body response of the endpoint, such as {"data":{"empNumber":7,...},"meta":[],"rels":[]}
+	 * @return the empNumber of the data, or null if the body is not such a response
+	 */
+	private String findEmpNumber(String body) {
+		try {
+			JsonObject response = gson.fromJson(body, JsonObject.class);
+			JsonElement data = response == null ? null : response.get("data");
+			if (data == null || !data.isJsonObject()) {
+				return null;
+			}
+			JsonElement empNumber = data.getAsJsonObject().get("empNumber");
+			return empNumber == null || empNumber.isJsonNull() ? null : empNumber.getAsString();
+		} catch (JsonSyntaxException e) {
+			// a login page or an error page instead of JSON
+			return null;
+		}
+	}
+
+	private static String abbreviate(String body) {
+		return body.length() > 200 ? body.substring(0, 200) + "..." : body;
+	}
+
+	private static final String EMPLOYEES_PATH = "/web/index.php/api/v2/pim/employees";
+
+	private final Gson gson = new Gson();
+	private final FixtureClient client;
+}
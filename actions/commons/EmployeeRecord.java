@@ -0,0 +1,92 @@
+package commons;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One employee to create, read from a data file by {@link EmployeeRecordReader}
+ */
+public final class EmployeeRecord implements Checkpointed {
+	EmployeeRecord(long index, Map<String, String> fields) {
+		Map<String, String> byName = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		byName.putAll(fields);
+		this.index = index;
+		this.firstName = value(byName, "firstName");
+		this.middleName = value(byName, "middleName");
+		this.lastName = value(byName, "lastName");
+		this.employeeId = value(byName, "employeeId");
+		this.username = value(byName, "username");
+		this.password = value(byName, "password");
+		this.status = value(byName, "status");
+	}
+
+	/**
+	 * @return position of the record in its data file, from 0
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getMiddleName() {
+		return middleName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public String getEmployeeId() {
+		return employeeId;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * Record the employee as created, so a resumed run skips it. Called by
+	 * {@link MethodListener} when the test that received the record passes.
+	 */
+	@Override
+	public void markDone() {
+		if (checkpoint != null) {
+			checkpoint.markDone(index);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "#" + index + " " + firstName + " " + lastName;
+	}
+
+	void setCheckpoint(DataCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	private static String value(Map<String, String> fields, String name) {
+		String value = fields.get(name);
+		return value == null ? "" : value.trim();
+	}
+
+	private final long index;
+	private final String firstName;
+	private final String middleName;
+	private final String lastName;
+	private final String employeeId;
+	private final String username;
+	private final String password;
+	private final String status;
+	private DataCheckpoint checkpoint;
+}
@@ -0,0 +1,210 @@
+package commons;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Reads the employee records of a CSV file (with a header line) or a JSON file
+ * (an array of objects) one at a time, so a file of any size uses the memory of
+ * a single record.
+ */
+public abstract class EmployeeRecordReader implements Iterator<EmployeeRecord>, Closeable {
+	EmployeeRecordReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * @param file .csv or .json file
+	 * @return a reader positioned on the first record
+	 * @throws IOException if the file can not be opened
+	 */
+	public static EmployeeRecordReader open(File file) throws IOException {
+		Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+		String name = file.getName().toLowerCase();
+		try {
+			if (name.endsWith(".csv")) {
+				return new CsvReader(reader);
+			} else if (name.endsWith(".json")) {
+				return new JsonRecordReader(reader);
+			}
+		} catch (IOException | RuntimeException e) {
+			reader.close();
+			throw e;
+		}
+		reader.close();
+		throw new RuntimeException("Employee data file " + file + " is neither .csv nor .json");
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !finished) {
+			try {
+				Map<String, String> fields = readFields();
+				if (fields == null) {
+					finished = true;
+					close();
+				} else {
+					next = new EmployeeRecord(index++, fields);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Employee data can not be read", e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public EmployeeRecord next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		EmployeeRecord record = next;
+		next = null;
+		return record;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * @return the fields of the next record by name, or null at the end of the
+	 *         file
+	 */
+	protected abstract Map<String, String> readFields() throws IOException;
+
+	/**
+	 * RFC 4180 CSV: fields may be quoted, a quoted field may hold commas, line
+	 * breaks and doubled quotes. Empty lines are skipped.
+	 */
+	private static final class CsvReader extends EmployeeRecordReader {
+		CsvReader(Reader reader) throws IOException {
+			super(reader);
+			this.csv = reader;
+			List<String> names = readRow();
+			if (names == null) {
+				throw new RuntimeException("Employee CSV file has no header line");
+			}
+			header = names;
+		}
+
+		@Override
+		protected Map<String, String> readFields() throws IOException {
+			List<String> row = readRow();
+			if (row == null) {
+				return null;
+			}
+			Map<String, String> fields = new LinkedHashMap<String, String>();
+			for (int i = 0; i < header.size() && i < row.size(); i++) {
+				fields.put(header.get(i).trim(), row.get(i));
+			}
+			return fields;
+		}
+
+		private List<String> readRow() throws IOException {
+			List<String> row = new ArrayList<String>();
+			StringBuilder field = new StringBuilder();
+			boolean quoted = false;
+			boolean empty = true;
+			int c;
+			while ((c = csv.read()) != -1) {
+				if (quoted) {
+					if (c == '"') {
+						csv.mark(1);
+						if (csv.read() != '"') {
+							csv.reset();
+							quoted = false;
+							continue;
+						}
+					}
+					field.append((char) c);
+				} else if (c == '"') {
+					quoted = true;
+					empty = false;
+				} else if (c == ',') {
+					row.add(field.toString());
+					field.setLength(0);
+					empty = false;
+				} else if (c == '\r' || c == '\n') {
+					if (c == '\r') {
+						csv.mark(1);
+						if (csv.read() != '\n') {
+							csv.reset();
+						}
+					}
+					if (!empty) {
+						row.add(field.toString());
+						return row;
+					}
+				} else {
+					field.append((char) c);
+					empty = false;
+				}
+			}
+			if (empty) {
+				return null;
+			}
+			row.add(field.toString());
+			return row;
+		}
+
+		private final Reader csv;
+		private final List<String> header;
+	}
+
+	/**
+	 * JSON array of flat objects; nested values are skipped
+	 */
+	private static final class JsonRecordReader extends EmployeeRecordReader {
+		JsonRecordReader(Reader reader) throws IOException {
+			super(reader);
+			json = new JsonReader(reader);
+			json.beginArray();
+		}
+
+		@Override
+		protected Map<String, String> readFields() throws IOException {
+			if (!json.hasNext()) {
+				json.endArray();
+				return null;
+			}
+			Map<String, String> fields = new LinkedHashMap<String, String>();
+			json.beginObject();
+			while (json.hasNext()) {
+				String name = json.nextName();
+				JsonToken token = json.peek();
+				if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+					fields.put(name, json.nextString());
+				} else if (token == JsonToken.BOOLEAN) {
+					fields.put(name, String.valueOf(json.nextBoolean()));
+				} else {
+					json.skipValue();
+				}
+			}
+			json.endObject();
+			return fields;
+		}
+
+		private final JsonReader json;
+	}
+
+	private final Reader reader;
+	private EmployeeRecord next;
+	private long index;
+	private boolean finished;
+}
@@ -0,0 +1,334 @@
+package commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Small HTTP client that seeds test data through the forms and REST endpoints
+ * of the application, in the session of a browser: it starts with the cookies
+ * of the driver and keeps the cookies the server sets afterwards. Preconditions
+ * then take one request instead of a page of UI actions.
+ *
+ * Cookies belong to the host of the base URL: cookies of the driver for other
+ * domains are left out, and redirects to another host are not followed, so the
+ * session never leaves the application.
+ *
+ * The base URL is a parameter, so the client also runs against a local stub
+ * server.
+ */
+public class FixtureClient {
+	/**
+	 * @param baseUrl such as https://opensource-demo.orangehrmlive.com
+	 * @param cookies session cookies, from BasePage.getAllCookies
+	 */
+	public FixtureClient(String baseUrl, Set<Cookie> cookies) {
+		this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+		try {
+			this.host = new URL(this.baseUrl).getHost().toLowerCase();
+		} catch (MalformedURLException e) {
+			throw new RuntimeException("Invalid base URL " + baseUrl, e);
+		}
+		if (cookies != null) {
+			for (Cookie cookie : cookies) {
+				if (matchesDomain(cookie.getDomain())) {
+					this.cookies.put(cookie.getName(), cookie.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param driver  logged in driver
+	 * @param baseUrl
+	 * @return a client in the session of the driver
+	 */
+	public static FixtureClient forDriver(WebDriver driver, String baseUrl) {
+		return new FixtureClient(baseUrl, driver.manage().getCookies());
+	}
+
+	/**
+	 * @param path such as /web/index.php/api/v2/pim/employees
+	 * @return the response, after following redirects
+	 */
+	public Response get(String path) {
+		return send("GET", path, null, null);
+	}
+
+	/**
+	 * Submit a form as the browser would
+	 *
+	 * @param path
+	 * @param fields names and values of the form fields
+	 * @return the response, after following redirects
+	 */
+	public Response postForm(String path, Map<String, String> fields) {
+		StringBuilder body = new StringBuilder();
+		try {
+			for (Map.Entry<String, String> field : fields.entrySet()) {
+				if (body.length() > 0) {
+					body.append('&');
+				}
+				body.append(URLEncoder.encode(field.getKey(), "UTF-8")).append('=')
+						.append(URLEncoder.encode(field.getValue() == null ? "" : field.getValue(), "UTF-8"));
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+		return send("POST", path, "application/x-www-form-urlencoded", body.toString());
+	}
+
+	/**
+	 * @param path
+	 * @param json request body
+	 * @return the response, after following redirects
+	 */
+	public Response postJson(String path, String json) {
+		return send("POST", path, "application/json", json);
+	}
+
+	/**
+	 * @param html
+	 * @param fieldName name of the hidden input, such as _token
+	 * @return the value of the input
+	 * @throws RuntimeException if the page has no such input
+	 */
+	public static String extractCsrfToken(String html, String fieldName) {
+		Matcher input = INPUT.matcher(html);
+		while (input.find()) {
+			String tag = input.group();
+			if (fieldName.equals(getAttribute(tag, "name"))) {
+				String value = getAttribute(tag, "value");
+				if (value != null) {
+					return value;
+				}
+			}
+		}
+		throw new RuntimeException("No " + fieldName + " input in the page");
+	}
+
+	public Map<String, String> getCookies() {
+		synchronized (cookies) {
+			return new LinkedHashMap<String, String>(cookies);
+		}
+	}
+
+	private Response send(String method, String path, String contentType, String body) {
+		String url = path.startsWith("http://") || path.startsWith("https://") ? path : baseUrl + path;
+		for (int redirects = 0; redirects <= MAX_REDIRECTS; redirects++) {
+			Response response = sendOnce(method, url, contentType, body);
+			String location = response.getHeader("Location");
+			if (response.getStatus() / 100 != 3 || location == null) {
+				return response;
+			}
+			try {
+				URL target = new URL(new URL(url), location);
+				if (!isSameHost(target)) {
+					// the session cookies must not follow the redirect
+					return response;
+				}
+				url = target.toString();
+			} catch (MalformedURLException e) {
+				throw new RuntimeException("Invalid redirect to " + location, e);
+			}
+			if (response.getStatus() != 307 && response.getStatus() != 308) {
+				// a form post is followed by a GET of the result page
+				method = "GET";
+				contentType = null;
+				body = null;
+			}
+		}
+		throw new RuntimeException("Too many redirects for " + method + " " + path);
+	}
+
+	private Response sendOnce(String method, String url, String contentType, String body) {
+		HttpURLConnection connection = null;
+		try {
+			URL target = new URL(url);
+			boolean sameHost = isSameHost(target);
+			connection = (HttpURLConnection) target.openConnection();
+			connection.setInstanceFollowRedirects(false);
+			connection.setConnectTimeout(GlobalConstants.SHORT_TIMEOUT * 1000);
+			connection.setReadTimeout(GlobalConstants.LONG_TIMEOUT * 1000);
+			connection.setRequestMethod(method);
+			String cookieHeader = sameHost ? getCookieHeader() : "";
+			if (!cookieHeader.isEmpty()) {
+				connection.setRequestProperty("Cookie", cookieHeader);
+			}
+			if (body != null) {
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				connection.setDoOutput(true);
+				connection.setRequestProperty("Content-Type", contentType + "; charset=UTF-8");
+				connection.setFixedLengthStreamingMode(bytes.length);
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write(bytes);
+				}
+			}
+			int status = connection.getResponseCode();
+			if (sameHost) {
+				storeCookies(connection.getHeaderFields());
+			}
+			InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+			return new Response(url, status, connection.getHeaderFields(), read(in));
+		} catch (IOException e) {
+			throw new RuntimeException(method + " " + url + " failed", e);
+		} finally {
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+	}
+
+	private String getCookieHeader() {
+		StringBuilder header = new StringBuilder();
+		synchronized (cookies) {
+			for (Map.Entry<String, String> cookie : cookies.entrySet()) {
+				if (header.length() > 0) {
+					header.append("; ");
+				}
+				header.append(cookie.getKey()).append('=').append(cookie.getValue());
+			}
+		}
+		return header.toString();
+	}
+
+	private void storeCookies(Map<String, List<String>> headers) {
+		synchronized (cookies) {
+			for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+				if (!"Set-Cookie".equalsIgnoreCase(header.getKey())) {
+					continue;
+				}
+				for (String setCookie : header.getValue()) {
+					String[] parts = setCookie.split(";");
+					int equals = parts[0].indexOf('=');
+					if (equals > 0 && matchesDomain(getCookieDomain(parts))) {
+						cookies.put(parts[0].substring(0, equals).trim(), parts[0].substring(equals + 1).trim());
+					}
+				}
+			}
+		}
+	}
+
+	private boolean isSameHost(URL url) {
+		return host.equalsIgnoreCase(url.getHost());
+	}
+
+	/**
+	 * @param domain domain of a cookie, such as .orangehrmlive.com, or null for
+	 *               a host-only cookie
+	 * @return true if the cookie is sent to the host of the base URL
+	 */
+	private boolean matchesDomain(String domain) {
+		if (domain == null || domain.isEmpty()) {
+			return true;
+		}
+		String name = (domain.startsWith(".") ? domain.substring(1) : domain).toLowerCase();
+		return host.equals(name) || host.endsWith("." + name);
+	}
+
+	/**
+	 * @return the Domain attribute of a Set-Cookie header split on ';', or null
+	 */
+	private static String getCookieDomain(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String attribute = parts[i].trim();
+			if (attribute.regionMatches(true, 0, "Domain=", 0, 7)) {
+				return attribute.substring(7).trim();
+			}
+		}
+		return null;
+	}
+
+	private static String read(InputStream in) throws IOException {
+		if (in == null) {
+			return "";
+		}
+		try (InputStream input = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8 * 1024];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static String getAttribute(String tag, String name) {
+		Matcher attribute = Pattern
+				.compile("\\s" + Pattern.quote(name) + "\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')", Pattern.CASE_INSENSITIVE)
+				.matcher(tag);
+		if (!attribute.find()) {
+			return null;
+		}
+		return attribute.group(1) != null ? attribute.group(1) : attribute.group(2);
+	}
+
+	/**
+	 * Status, headers and body of a response
+	 */
+	public static final class Response {
+		Response(String url, int status, Map<String, List<String>> headers, String body) {
+			this.url = url;
+			this.status = status;
+			this.headers = headers;
+			this.body = body;
+		}
+
+		/**
+		 * @return the URL that answered, after redirects
+		 */
+		public String getUrl() {
+			return url;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public String getBody() {
+			return body;
+		}
+
+		/**
+		 * @param name header name, in any case
+		 * @return the first value of the header, or null
+		 */
+		public String getHeader(String name) {
+			for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+				if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+					return header.getValue().get(0);
+				}
+			}
+			return null;
+		}
+
+		private final String url;
+		private final int status;
+		private final Map<String, List<String>> headers;
+		private final String body;
+	}
+
+	private static final int MAX_REDIRECTS = 5;
+	private static final Pattern INPUT = Pattern.compile("<input\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+
+	private final String baseUrl;
+	private final String host;
+	private final Map<String, String> cookies = new LinkedHashMap<String, String>();
+}
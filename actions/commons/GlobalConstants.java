@@ -10,10 +10,62 @@ public class GlobalConstants {
 
 	public static final int SHORT_TIMEOUT = 5;
 	public static final int LONG_TIMEOUT = 30;
+	public static final int IMPLICIT_TIMEOUT = 15;
+	public static final int PAGE_LOAD_TIMEOUT = 60;
+	public static final int SCRIPT_TIMEOUT = 30;
+	public static final long POLL_INTERVAL_MILLIS = 50;
+	public static final long MAX_POLL_INTERVAL_MILLIS = 500;
+	public static final int WAIT_REPORT_LIMIT = 1000;
+	public static final int ANIMATION_WAIT_TIMEOUT = 1;
+	public static final long HIGHLIGHT_DURATION_MILLIS = 1000;
+
+	// sessions per browser profile, -Ddriver.pool.size=4 for bigger parallel suites
+	public static final int DRIVER_POOL_SIZE = Integer.getInteger("driver.pool.size", 2);
+	public static final int DRIVER_QUIT_TIMEOUT = 10;
+	public static final boolean PRELAUNCH_ENABLED = true;
+	// opt-in: -Dresource.filter=true
+	public static final boolean RESOURCE_FILTER_ENABLED = Boolean.getBoolean("resource.filter");
+	public static final String[] RESOURCE_FILTER_BLOCKED_HOSTS = { "google-analytics.com", "googletagmanager.com",
+			"doubleclick.net", "fonts.googleapis.com", "fonts.gstatic.com", "facebook.net", "hotjar.com" };
+	public static final String RESOURCE_FILTER_BLOCKED_URLS = "\\.(woff2?|ttf|otf|eot)(\\?|$)";
+	// opt-in: -Dpage.load.stats=true, one more script per page load
+	public static final boolean PAGE_LOAD_STATS_ENABLED = Boolean.getBoolean("page.load.stats");
+	public static final long PRELAUNCH_MEMORY_PER_BROWSER_MB = 400;
+	public static final long PRELAUNCH_MEMORY_RESERVE_MB = 1024;
+	public static final String MATRIX_BROWSERS = "CHROME,FIREFOX,EDGE_CHROMIUM";
+	public static final int HEADLESS_WINDOW_WIDTH = 1920;
+	public static final int HEADLESS_WINDOW_HEIGHT = 1080;
+	public static final boolean HEADLESS_EAGER_PAGE_LOAD = false;
+	public static final int DRIVER_CACHE_TTL_DAYS = 7;
+	public static final boolean DRIVER_CACHE_OFFLINE = false;
+
+	public static final int LOCATOR_CACHE_SIZE = 1024;
+	public static final boolean XPATH_TO_CSS_ENABLED = true;
+	public static final long SNAPSHOT_MAX_AGE_MILLIS = 10000;
+	public static final int FAILURE_STACK_DEPTH = 30;
+	public static final boolean ACTION_METRICS_ENABLED = true;
+	public static final int ACTION_METRICS_REPORT_ROWS = 20;
+	// opt-in: -Dcommand.trace=true
+	public static final boolean COMMAND_TRACE_ENABLED = Boolean.getBoolean("command.trace");
+	public static final int COMMAND_TRACE_LIMIT = 20000;
 	
 	public static final String PROJECT_PATH = System.getProperty("user.dir");
 	public static final String UPLOAD_FOLDER_PATH = PROJECT_PATH + File.separator + "uploadFiles" + File.separator;
 	public static final String DOWNLOAD_FOLDER_PATH = PROJECT_PATH + File.separator + "downloadFiles";
+	public static final String LOGIN_STATE_FOLDER_PATH = PROJECT_PATH + File.separator + "loginStates";
+	public static final String COMMAND_TRACE_FOLDER_PATH = PROJECT_PATH + File.separator + "traces";
+	public static final String DRIVER_CACHE_FOLDER_PATH = PROJECT_PATH + File.separator + "drivers";
+	public static final String CHECKPOINT_FOLDER_PATH = PROJECT_PATH + File.separator + "checkpoints";
+	public static final String EMPLOYEE_DATA_FILE = PROJECT_PATH + File.separator + "resources" + File.separator
+			+ "employees.csv";
+	public static final String MATRIX_SUITE_FILE = PROJECT_PATH + File.separator + "resources" + File.separator
+			+ "runTestcase.xml";
+
+	public static final long LOGIN_STATE_TTL_MINUTES = 30;
+	public static final String LOGIN_STATE_BOOTSTRAP_PATH = "/favicon.ico";
+	public static final String LOGIN_PAGE_PATH = "/auth/login";
+	public static final String FIXTURE_BASE_URL = System.getProperty("fixture.baseUrl",
+			"https://opensource-demo.orangehrmlive.com");
 	
 	
 }
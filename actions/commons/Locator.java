@@ -0,0 +1,64 @@
+package commons;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openqa.selenium.By;
+
+/**
+ * Shared code of the typed locator accessors {@link Locator0},
+ * {@link Locator1} and {@link Locator2}
+ */
+final class Locator {
+	private Locator() {
+	}
+
+	/**
+	 * @param xpath
+	 * @param arity number of parameters the accessor passes
+	 * @return the parsed template
+	 * @throws RuntimeException if the template needs another number of
+	 *                                  parameters, which means the generated
+	 *                                  class is out of date
+	 */
+	static LocatorTemplate checkArity(String xpath, int arity) {
+		LocatorTemplate template = LocatorTemplate.parse(xpath);
+		if (template.getArity() != arity) {
+			throw new RuntimeException("Locator " + xpath + " has " + template.getArity()
+					+ " parameters, its accessor has " + arity + ": run LocatorGenerator again");
+		}
+		return template;
+	}
+
+	/**
+	 * @param param parameter value, may be null
+	 * @return the value as the template formats it: null is formatted as "null"
+	 */
+	static String param(String param) {
+		return param == null ? NULL_PARAM : param;
+	}
+
+	/**
+	 * By of each parameter value of a locator, emptied when it grows over
+	 * LOCATOR_CACHE_SIZE
+	 */
+	abstract static class ByCache<K> {
+		By get(K params) {
+			By by = byParams.get(params);
+			if (by == null) {
+				if (byParams.size() >= GlobalConstants.LOCATOR_CACHE_SIZE) {
+					byParams.clear();
+				}
+				by = XPathToCss.toBy(format(params));
+				byParams.put(params, by);
+			}
+			return by;
+		}
+
+		protected abstract String format(K params);
+
+		private final Map<K, By> byParams = new ConcurrentHashMap<K, By>();
+	}
+
+	private static final String NULL_PARAM = "null";
+}
@@ -0,0 +1,42 @@
+package commons;
+
+import org.openqa.selenium.By;
+
+/**
+ * Typed accessor of a locator without parameter. The By is built once, when the
+ * generated locator class is loaded.
+ *
+ * @see LocatorGenerator
+ */
+public final class Locator0 {
+	private Locator0(String xpath) {
+		this.xpath = xpath;
+		this.by = XPathToCss.toBy(xpath);
+	}
+
+	/**
+	 * @param xpath locator of a locator table
+	 * @return the accessor
+	 * @throws RuntimeException if the locator has parameters
+	 */
+	public static Locator0 of(String xpath) {
+		Locator.checkArity(xpath, 0);
+		return new Locator0(xpath);
+	}
+
+	public By by() {
+		return by;
+	}
+
+	public String xpath() {
+		return xpath;
+	}
+
+	@Override
+	public String toString() {
+		return xpath;
+	}
+
+	private final String xpath;
+	private final By by;
+}
@@ -0,0 +1,47 @@
+package commons;
+
+import org.openqa.selenium.By;
+
+/**
+ * Typed accessor of a locator with one parameter. The template is parsed once,
+ * when the generated locator class is loaded, and the By of each parameter
+ * value is kept.
+ *
+ * @see LocatorGenerator
+ */
+public final class Locator1 {
+	private Locator1(LocatorTemplate template) {
+		this.template = template;
+	}
+
+	/**
+	 * @param xpath locator template of a locator table
+	 * @return the accessor
+	 * @throws RuntimeException if the template does not have exactly one
+	 *                                  parameter
+	 */
+	public static Locator1 of(String xpath) {
+		return new Locator1(Locator.checkArity(xpath, 1));
+	}
+
+	public By by(String param) {
+		return cache.get(Locator.param(param));
+	}
+
+	public String xpath(String param) {
+		return template.format(param);
+	}
+
+	@Override
+	public String toString() {
+		return template.getTemplate();
+	}
+
+	private final LocatorTemplate template;
+	private final Locator.ByCache<String> cache = new Locator.ByCache<String>() {
+		@Override
+		protected String format(String param) {
+			return template.format(param);
+		}
+	};
+}
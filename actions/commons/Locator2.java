@@ -0,0 +1,63 @@
+package commons;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openqa.selenium.By;
+
+/**
+ * Typed accessor of a locator with two parameters. The template is parsed once,
+ * when the generated locator class is loaded, and the By of each pair of
+ * parameter values is kept: by the first value, then by the second, so a
+ * lookup does not build a key.
+ *
+ * @see LocatorGenerator
+ */
+public final class Locator2 {
+	private Locator2(LocatorTemplate template) {
+		this.template = template;
+	}
+
+	/**
+	 * @param xpath locator template of a locator table
+	 * @return the accessor
+	 * @throws RuntimeException if the template does not have exactly two
+	 *                                  parameters
+	 */
+	public static Locator2 of(String xpath) {
+		return new Locator2(Locator.checkArity(xpath, 2));
+	}
+
+	public By by(String first, String second) {
+		final String firstParam = Locator.param(first);
+		Locator.ByCache<String> bySecond = byFirst.get(firstParam);
+		if (bySecond == null) {
+			if (byFirst.size() >= GlobalConstants.LOCATOR_CACHE_SIZE) {
+				byFirst.clear();
+			}
+			Locator.ByCache<String> created = new Locator.ByCache<String>() {
+				@Override
+				protected String format(String secondParam) {
+					return template.format(firstParam, secondParam);
+				}
+			};
+			bySecond = byFirst.putIfAbsent(firstParam, created);
+			if (bySecond == null) {
+				bySecond = created;
+			}
+		}
+		return bySecond.get(Locator.param(second));
+	}
+
+	public String xpath(String first, String second) {
+		return template.format(first, second);
+	}
+
+	@Override
+	public String toString() {
+		return template.getTemplate();
+	}
+
+	private final LocatorTemplate template;
+	private final Map<String, Locator.ByCache<String>> byFirst = new ConcurrentHashMap<String, Locator.ByCache<String>>();
+}
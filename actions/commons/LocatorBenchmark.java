@@ -0,0 +1,91 @@
+package commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Compares the lookup time of the XPath locators rewritten by
+ * {@link XPathToCss} with their CSS selector, on a generated static page, so
+ * the network plays no part.
+ *
+ * <pre>
+ * java commons.LocatorBenchmark [browser] [lookups per locator]
+ * java commons.LocatorBenchmark H_CHOME 500
+ * </pre>
+ */
+public class LocatorBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		BrowserProfile profile = BrowserProfile.of(args.length > 0 ? args[0] : "H_CHOME");
+		int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+		File fixture = writeFixture();
+		WebDriver driver = profile.launch();
+		try {
+			driver.get(fixture.toURI().toString());
+			System.out.println(String.format("%-60s %12s %12s %8s", "XPath", "XPath (us)", "CSS (us)", "Gain"));
+			for (String xpath : LOCATORS) {
+				String css = XPathToCss.translate(xpath);
+				if (css == null) {
+					System.out.println(String.format("%-60s %12s", xpath, "not rewritten"));
+					continue;
+				}
+				// warm up both, then measure
+				measure(driver, By.xpath(xpath), lookups / 10);
+				measure(driver, By.cssSelector(css), lookups / 10);
+				long xpathMicros = measure(driver, By.xpath(xpath), lookups);
+				long cssMicros = measure(driver, By.cssSelector(css), lookups);
+				System.out.println(String.format("%-60s %12d %12d %7d%%", xpath, xpathMicros, cssMicros,
+						xpathMicros == 0 ? 0 : 100 * (xpathMicros - cssMicros) / xpathMicros));
+			}
+		} finally {
+			DriverReaper.getReaper().reap(driver);
+			DriverReaper.getReaper().drain(GlobalConstants.DRIVER_QUIT_TIMEOUT);
+			fixture.delete();
+		}
+	}
+
+	/**
+	 * @return mean microseconds of a findElements call
+	 */
+	private static long measure(WebDriver driver, By by, int lookups) {
+		long start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			driver.findElements(by);
+		}
+		return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / Math.max(1, lookups);
+	}
+
+	/**
+	 * A page the size of an OrangeHRM list: a menu and a table of 500 rows
+	 */
+	private static File writeFixture() throws IOException {
+		StringBuilder html = new StringBuilder("<html><body><div id='menu' class='menu main'><ul>");
+		for (int i = 0; i < 50; i++) {
+			html.append("<li><a href='/menu/").append(i).append("' class='firstLevelMenu'>Menu ").append(i)
+					.append("</a></li>");
+		}
+		html.append("</ul></div><form id='frmList'><table><tbody>");
+		for (int i = 0; i < 500; i++) {
+			html.append("<tr class='").append(i % 2 == 0 ? "odd" : "even")
+					.append("'><td><input type='checkbox' id='ohrmList_chkSelectRecord_").append(i).append("' name='chkSelectRow[]'/></td><td><a href='/employee/").append(i)
+					.append("'>Employee ").append(i).append("</a></td><td><select name='status").append(i)
+					.append("'><option>Active</option></select></td></tr>");
+		}
+		html.append("</tbody></table><input type='button' id='btnSave' value='Save'/></form></body></html>");
+		File fixture = File.createTempFile("locator-benchmark", ".html");
+		Files.write(fixture.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+		return fixture;
+	}
+
+	private static final String[] LOCATORS = { "//input[@id='btnSave']", "//*[@id='ohrmList_chkSelectRecord_499']",
+			"//select[@name='status250']", "//div[@id='menu']//a[contains(@class,'firstLevelMenu')]",
+			"//tr[contains(@class,'even')]/td/a[starts-with(@href,'/employee/4')]", "//input[@type='checkbox']",
+			"//a[text()='Employee 10']" };
+}
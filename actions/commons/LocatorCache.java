@@ -0,0 +1,219 @@
+package commons;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openqa.selenium.By;
+
+/**
+ * Bounded cache of the By objects built by BasePage, safe for parallel tests.
+ * Static locators are keyed by their string, dynamic locators by their template
+ * and parameters, so a repeated lookup does not format the template and does
+ * not build a new By. The lookup key is reused per thread: a hit allocates
+ * nothing. Simple XPaths are located with the equivalent CSS selector, see
+ * {@link XPathToCss}.
+ *
+ * The cache is split in SEGMENTS segments by the hash of the key, each a least
+ * recently used map behind its own lock, so parallel tests rarely wait for
+ * each other. When a segment is full, its least recently used By is evicted:
+ * the cache never holds more than LOCATOR_CACHE_SIZE By objects.
+ */
+public class LocatorCache {
+	private LocatorCache(int capacity) {
+		int segmentCapacity = Math.max(1, capacity / SEGMENTS);
+		segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(segmentCapacity);
+		}
+	}
+
+	// Singleton Pattern
+	public static LocatorCache getLocatorCache() {
+		return Holder.CACHE;
+	}
+
+	/**
+	 * @param locator static XPath
+	 * @return A By which locates elements via XPath.
+	 */
+	public By getBy(String locator) {
+		return lookup(locator, NO_PARAMS);
+	}
+
+	/**
+	 * @param locator XPath template
+	 * @param params  values of the template
+	 * @return A By which locates elements via the formatted XPath.
+	 */
+	public By getBy(String locator, String... params) {
+		return lookup(locator, params);
+	}
+
+	/**
+	 * @param locator XPath template
+	 * @return the template parsed once and reused afterwards
+	 */
+	public LocatorTemplate getTemplate(String locator) {
+		LocatorTemplate template = templates.get(locator);
+		if (template == null) {
+			LocatorTemplate parsed = LocatorTemplate.parse(locator);
+			template = templates.putIfAbsent(locator, parsed);
+			if (template == null) {
+				template = parsed;
+			}
+		}
+		return template;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of By objects in the cache
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		templates.clear();
+	}
+
+	private By lookup(String locator, String[] params) {
+		Key probe = probes.get();
+		probe.set(locator, params);
+		Segment segment = segments[(probe.hash ^ (probe.hash >>> 16)) & (SEGMENTS - 1)];
+		By by;
+		synchronized (segment) {
+			by = segment.get(probe);
+		}
+		if (by != null) {
+			hits.increment();
+			return by;
+		}
+		misses.increment();
+		// built outside the lock: formatting and converting an XPath take longer than a lookup
+		By built = XPathToCss.toBy(params.length == 0 ? locator : getTemplate(locator).format(params));
+		synchronized (segment) {
+			by = segment.get(probe);
+			if (by == null) {
+				by = built;
+				segment.put(new Key(locator, params.clone()), by);
+			}
+		}
+		return by;
+	}
+
+	/**
+	 * Locator and parameters. A null parameter is formatted as "null", so it
+	 * equals the parameter "null".
+	 */
+	private static final class Key {
+		Key() {
+		}
+
+		Key(String locator, String[] params) {
+			set(locator, params);
+		}
+
+		void set(String locator, String[] params) {
+			this.locator = locator;
+			this.params = params;
+			int h = locator.hashCode() * 31 + params.length;
+			for (String param : params) {
+				h = h * 31 + (param == null ? NULL_PARAM.hashCode() : param.hashCode());
+			}
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			if (hash != key.hash || params.length != key.params.length || !locator.equals(key.locator)) {
+				return false;
+			}
+			for (int i = 0; i < params.length; i++) {
+				if (!param(params[i]).equals(param(key.params[i]))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static String param(String param) {
+			return param == null ? NULL_PARAM : param;
+		}
+
+		String locator;
+		String[] params;
+		int hash;
+	}
+
+	/**
+	 * Least recently used map of a segment, guarded by the segment itself
+	 */
+	private static final class Segment extends LinkedHashMap<Key, By> {
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, By> eldest) {
+			return size() > capacity;
+		}
+
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+	}
+
+	private static class Holder {
+		static final LocatorCache CACHE = new LocatorCache(GlobalConstants.LOCATOR_CACHE_SIZE);
+	}
+
+	// a power of two, for the index mask
+	private static final int SEGMENTS = 16;
+	private static final String[] NO_PARAMS = new String[0];
+	private static final String NULL_PARAM = "null";
+
+	private static final ThreadLocal<Key> probes = new ThreadLocal<Key>() {
+		@Override
+		protected Key initialValue() {
+			return new Key();
+		}
+	};
+
+	private final Segment[] segments;
+	private final Map<String, LocatorTemplate> templates = new ConcurrentHashMap<String, LocatorTemplate>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+}
@@ -0,0 +1,94 @@
+package commons;
+
+import java.lang.management.ManagementFactory;
+
+import org.openqa.selenium.By;
+
+/**
+ * Compares the lookup of a By by the former BasePage code (String.format, then
+ * By.xpath on every call) with the {@link LocatorCache}: time and bytes
+ * allocated per lookup, on the calling thread.
+ *
+ * <pre>
+ * java commons.LocatorCacheBenchmark [lookups] [threads]
+ * java commons.LocatorCacheBenchmark 5000000 4
+ * </pre>
+ *
+ * JMH is not among the libraries of the project, so each measure is preceded by
+ * a warm-up of the same length and the result of every lookup is consumed.
+ */
+public class LocatorCacheBenchmark {
+
+	public static void main(String[] args) throws InterruptedException {
+		final int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		System.out.println(String.format("%-22s %8s %10s %12s", "Lookup", "Threads", "ns/op", "bytes/op"));
+		for (int count : new int[] { 1, threads }) {
+			for (final boolean cached : new boolean[] { false, true }) {
+				run(cached, lookups, count);
+				long[] result = run(cached, lookups, count);
+				System.out.println(String.format("%-22s %8d %10.1f %12.1f",
+						cached ? "LocatorCache" : "String.format+By.xpath", count, (double) result[0] / lookups,
+						(double) result[1] / lookups));
+			}
+		}
+		System.out.println("sink " + sink);
+	}
+
+	/**
+	 * @return mean nanoseconds and bytes of a thread for the lookups
+	 */
+	private static long[] run(final boolean cached, final int lookups, int threads) throws InterruptedException {
+		final long[][] results = new long[threads][];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int index = t;
+			workers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					results[index] = measure(cached, lookups);
+				}
+			});
+			workers[t].start();
+		}
+		long nanos = 0;
+		long bytes = 0;
+		for (int t = 0; t < threads; t++) {
+			workers[t].join();
+			nanos += results[t][0];
+			bytes += results[t][1];
+		}
+		return new long[] { nanos / threads, bytes / threads };
+	}
+
+	private static long[] measure(boolean cached, int lookups) {
+		LocatorCache cache = LocatorCache.getLocatorCache();
+		long hash = 0;
+		long bytesBefore = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			String param = PARAMS[i & (PARAMS.length - 1)];
+			By by = cached ? cache.getBy(TEMPLATE, param) : By.xpath(String.format(TEMPLATE, param));
+			hash += System.identityHashCode(by);
+		}
+		long nanos = System.nanoTime() - start;
+		long bytes = allocatedBytes() - bytesBefore;
+		sink += hash;
+		return new long[] { nanos, bytes };
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private static final String TEMPLATE = "//input[@id='%s']";
+	private static final String[] PARAMS = { "txtUsername", "txtPassword", "btnLogin", "firstName", "middleName",
+			"lastName", "employeeId", "btnSave" };
+
+	private static volatile long sink;
+}
@@ -0,0 +1,112 @@
+package commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates the typed locator class of a locator table: for each public static
+ * final String of BasePageUI, a {@link Locator0}, {@link Locator1} or
+ * {@link Locator2} field in BasePageLocators, next to the table. A locator
+ * "//input[@id='%s']" becomes a Locator1 and pages call LOCATOR.by(id): the
+ * number of parameters is checked by the compiler and the template is parsed
+ * once, when the class is loaded, instead of on every call. A locator that is
+ * still an empty string becomes a Locator0.
+ *
+ * Run it again after changing a table; a generated class that no longer matches
+ * its table fails when it is loaded.
+ *
+ * <pre>
+ * java commons.LocatorGenerator [table class] [source folder]
+ * java commons.LocatorGenerator pageUIs.commons.BasePageUI interfaces
+ * </pre>
+ */
+public class LocatorGenerator {
+
+	public static void main(String[] args) throws ClassNotFoundException, IOException {
+		String tableName = args.length > 0 ? args[0] : "pageUIs.commons.BasePageUI";
+		String sourceFolder = args.length > 1 ? args[1] : "interfaces";
+		File file = generate(Class.forName(tableName), new File(sourceFolder));
+		System.out.println("Generated " + file);
+	}
+
+	/**
+	 * Write the typed locator class of a table
+	 *
+	 * @param table        class of String locator constants, named ...UI
+	 * @param sourceFolder source folder of the table package
+	 * @return the generated file
+	 * @throws IOException if the file can not be written
+	 */
+	public static File generate(Class<?> table, File sourceFolder) throws IOException {
+		String packageName = table.getPackage().getName();
+		String className = getLocatorsClassName(table);
+		File file = new File(sourceFolder, packageName.replace('.', File.separatorChar) + File.separator + className
+				+ ".java");
+		Files.createDirectories(file.getParentFile().toPath());
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(generateSource(table));
+		}
+		return file;
+	}
+
+	/**
+	 * @param table class of String locator constants
+	 * @return source of the typed locator class
+	 */
+	public static String generateSource(Class<?> table) {
+		String className = getLocatorsClassName(table);
+		Set<String> accessors = new TreeSet<String>();
+		StringBuilder fields = new StringBuilder();
+		for (Field field : table.getDeclaredFields()) {
+			int modifiers = field.getModifiers();
+			if (!Modifier.isPublic(modifiers) || !Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers)
+					|| field.getType() != String.class) {
+				continue;
+			}
+			String accessor = "Locator" + getArity(table, field);
+			accessors.add(accessor);
+			fields.append("\n\tpublic static final ").append(accessor).append(' ').append(field.getName())
+					.append(" = ").append(accessor).append(".of(").append(table.getSimpleName()).append('.')
+					.append(field.getName()).append(");\n");
+		}
+
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(table.getPackage().getName()).append(";\n\n");
+		for (String accessor : accessors) {
+			source.append("import commons.").append(accessor).append(";\n");
+		}
+		source.append("\n/**\n * Typed locators of {@link ").append(table.getSimpleName()).append("}\n *\n");
+		source.append(" * Generated by commons.LocatorGenerator, do not edit.\n */\n");
+		source.append("public final class ").append(className).append(" {\n");
+		source.append("\tprivate ").append(className).append("() {\n\t}\n");
+		source.append(fields).append("}\n");
+		return source.toString();
+	}
+
+	private static int getArity(Class<?> table, Field field) {
+		String locator;
+		try {
+			locator = (String) field.get(null);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+		int arity = LocatorTemplate.parse(locator).getArity();
+		if (arity < 0 || arity > 2) {
+			throw new RuntimeException(table.getSimpleName() + "." + field.getName() + " = " + locator
+					+ " must have 0 to 2 %s parameters");
+		}
+		return arity;
+	}
+
+	private static String getLocatorsClassName(Class<?> table) {
+		String name = table.getSimpleName();
+		return (name.endsWith("UI") ? name.substring(0, name.length() - 2) : name) + "Locators";
+	}
+}
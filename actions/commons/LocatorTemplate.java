@@ -0,0 +1,134 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+
+/**
+ * A dynamic locator such as "//input[@id='%s']" parsed once into its literal
+ * parts and parameter slots. Only %s, %n$s and %% are understood; any other
+ * conversion falls back to String.format.
+ */
+public final class LocatorTemplate {
+
+	private LocatorTemplate(String template, String[] literals, int[] slots) {
+		this.template = template;
+		this.literals = literals;
+		this.slots = slots;
+	}
+
+	/**
+	 * Parse a locator template
+	 *
+	 * @param template locator with format specifiers
+	 * @return the parsed template
+	 * @throws RuntimeException if an explicit argument index is 0
+	 */
+	public static LocatorTemplate parse(String template) {
+		List<String> literals = new ArrayList<String>();
+		List<Integer> slots = new ArrayList<Integer>();
+		StringBuilder literal = new StringBuilder();
+		int nextIndex = 0;
+		int length = template.length();
+		for (int i = 0; i < length; i++) {
+			char c = template.charAt(i);
+			if (c != '%') {
+				literal.append(c);
+				continue;
+			}
+			if (i + 1 >= length) {
+				return fallback(template);
+			}
+			char next = template.charAt(i + 1);
+			if (next == '%') {
+				literal.append('%');
+				i++;
+			} else if (next == 's') {
+				literals.add(literal.toString());
+				literal.setLength(0);
+				slots.add(nextIndex++);
+				i++;
+			} else {
+				// explicit index: %1$s
+				int end = i + 1;
+				while (end < length && Character.isDigit(template.charAt(end))) {
+					end++;
+				}
+				if (end == i + 1 || end + 1 >= length || template.charAt(end) != '$'
+						|| template.charAt(end + 1) != 's') {
+					return fallback(template);
+				}
+				int index = Integer.parseInt(template.substring(i + 1, end));
+				if (index < 1) {
+					throw new RuntimeException("Format specifier '%" + index + "$s' of locator " + template
+							+ ": argument indexes start at 1");
+				}
+				literals.add(literal.toString());
+				literal.setLength(0);
+				slots.add(index - 1);
+				i = end + 1;
+			}
+		}
+		literals.add(literal.toString());
+
+		int[] slotArray = new int[slots.size()];
+		for (int i = 0; i < slotArray.length; i++) {
+			slotArray[i] = slots.get(i);
+		}
+		return new LocatorTemplate(template, literals.toArray(new String[0]), slotArray);
+	}
+
+	/**
+	 * Fill the parameter slots of the template
+	 *
+	 * @param params values of the slots, in order
+	 * @return the locator
+	 */
+	public String format(String... params) {
+		if (literals == null) {
+			return String.format(template, (Object[]) params);
+		}
+		if (slots.length == 0) {
+			return literals[0];
+		}
+		int size = 0;
+		for (String literal : literals) {
+			size += literal.length();
+		}
+		StringBuilder locator = new StringBuilder(size + 16 * slots.length);
+		for (int i = 0; i < slots.length; i++) {
+			int slot = slots[i];
+			if (slot >= params.length) {
+				throw new MissingFormatArgumentException("Format specifier '%s' of locator: " + template);
+			}
+			locator.append(literals[i]).append(params[slot]);
+		}
+		return locator.append(literals[slots.length]).toString();
+	}
+
+	/**
+	 * @return number of parameters the template needs, or -1 if it is not known
+	 */
+	public int getArity() {
+		if (literals == null) {
+			return -1;
+		}
+		int arity = 0;
+		for (int slot : slots) {
+			arity = Math.max(arity, slot + 1);
+		}
+		return arity;
+	}
+
+	public String getTemplate() {
+		return template;
+	}
+
+	private static LocatorTemplate fallback(String template) {
+		return new LocatorTemplate(template, null, null);
+	}
+
+	private final String template;
+	private final String[] literals;
+	private final int[] slots;
+}
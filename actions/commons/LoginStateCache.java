@@ -0,0 +1,255 @@
+package commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Cookies and local/session storage of a logged in session, kept per user role
+ * in memory and on disk under LOGIN_STATE_FOLDER_PATH. A new session that
+ * restores the state of a role starts logged in and skips the login UI.
+ *
+ * A state expires after LOGIN_STATE_TTL_MINUTES, or earlier when one of its
+ * cookies expires.
+ */
+public class LoginStateCache {
+	private LoginStateCache() {
+	}
+
+	// Singleton Pattern
+	public static LoginStateCache getCache() {
+		return Holder.CACHE;
+	}
+
+	/**
+	 * Save the login state of the session, right after the login of the role
+	 *
+	 * @param driver logged in session
+	 * @param role   user role, such as "admin" or "ess"
+	 */
+	@SuppressWarnings("unchecked")
+	public void capture(WebDriver driver, String role) {
+		LoginState state = new LoginState();
+		state.role = role;
+		state.origin = getOrigin(driver.getCurrentUrl());
+		state.expiresAt = System.currentTimeMillis()
+				+ TimeUnit.MINUTES.toMillis(GlobalConstants.LOGIN_STATE_TTL_MINUTES);
+		state.cookies = new ArrayList<StoredCookie>();
+		for (Cookie cookie : driver.manage().getCookies()) {
+			state.cookies.add(new StoredCookie(cookie));
+			if (cookie.getExpiry() != null) {
+				state.expiresAt = Math.min(state.expiresAt, cookie.getExpiry().getTime());
+			}
+		}
+		Map<String, Map<String, String>> storage = (Map<String, Map<String, String>>) ((JavascriptExecutor) driver)
+				.executeScript(READ_STORAGE_SCRIPT);
+		state.localStorage = storage.get("local");
+		state.sessionStorage = storage.get("session");
+
+		states.put(role, state);
+		write(state);
+	}
+
+	/**
+	 * Inject the saved login state of the role into the session, then open the
+	 * application. Cookies can only be set for the current domain, so the session
+	 * is first sent to the bootstrap page of the application when it is somewhere
+	 * else.
+	 *
+	 * The server may have ended the saved session before it expired. When opening
+	 * the application redirects to the login page, the state of the role is
+	 * invalidated and the session is left on the login page.
+	 *
+	 * @param driver session to log in
+	 * @param role   user role
+	 * @param appURL page of the application to open
+	 * @return false if no valid state is saved for the role, or the server no
+	 *         longer accepts it
+	 */
+	public boolean restore(WebDriver driver, String role, String appURL) {
+		LoginState state = getState(role);
+		if (state == null) {
+			return false;
+		}
+		if (!state.origin.equals(getOrigin(driver.getCurrentUrl()))) {
+			driver.get(state.origin + GlobalConstants.LOGIN_STATE_BOOTSTRAP_PATH);
+		}
+		for (StoredCookie cookie : state.cookies) {
+			driver.manage().addCookie(cookie.toCookie());
+		}
+		((JavascriptExecutor) driver).executeScript(WRITE_STORAGE_SCRIPT, state.localStorage, state.sessionStorage);
+		driver.get(appURL);
+		if (isLoginPage(driver.getCurrentUrl())) {
+			log.info("Login state of " + role + " was rejected by the server");
+			invalidate(role);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param role
+	 * @return true if a valid state is saved for the role
+	 */
+	public boolean hasState(String role) {
+		return getState(role) != null;
+	}
+
+	/**
+	 * Forget the state of a role, for example after a test changed its password
+	 *
+	 * @param role
+	 */
+	public void invalidate(String role) {
+		states.remove(role);
+		getFile(role).delete();
+	}
+
+	/**
+	 * @param appURL
+	 * @return URL of a light page of the application origin, used to inject the
+	 *         state before loading the application
+	 */
+	public static String getBootstrapUrl(String appURL) {
+		return getOrigin(appURL) + GlobalConstants.LOGIN_STATE_BOOTSTRAP_PATH;
+	}
+
+	private LoginState getState(String role) {
+		LoginState state = states.get(role);
+		if (state == null) {
+			state = read(role);
+			if (state != null) {
+				states.put(role, state);
+			}
+		}
+		if (state != null && state.expiresAt <= System.currentTimeMillis()) {
+			log.info("Login state of " + role + " has expired");
+			invalidate(role);
+			return null;
+		}
+		return state;
+	}
+
+	private LoginState read(String role) {
+		File file = getFile(role);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			return gson.fromJson(reader, LoginState.class);
+		} catch (IOException | JsonParseException e) {
+			log.info("Login state of " + role + " can not be read: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private void write(LoginState state) {
+		File file = getFile(state.role);
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			// one temporary file per writer: two threads may capture the same role
+			Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+			try {
+				try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+					gson.toJson(state, writer);
+				}
+				Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			log.info("Login state of " + state.role + " can not be saved: " + e.getMessage());
+		}
+	}
+
+	private static boolean isLoginPage(String url) {
+		return url != null && url.contains(GlobalConstants.LOGIN_PAGE_PATH);
+	}
+
+	private static File getFile(String role) {
+		return new File(GlobalConstants.LOGIN_STATE_FOLDER_PATH, role.replaceAll("[^A-Za-z0-9_-]", "_") + ".json");
+	}
+
+	private static String getOrigin(String url) {
+		URI uri = URI.create(url);
+		return uri.getScheme() + "://" + uri.getAuthority();
+	}
+
+	/** Serialized form of a login state */
+	private static class LoginState {
+		String role;
+		String origin;
+		long expiresAt;
+		List<StoredCookie> cookies;
+		Map<String, String> localStorage = new HashMap<String, String>();
+		Map<String, String> sessionStorage = new HashMap<String, String>();
+	}
+
+	/** Serialized form of a cookie */
+	private static class StoredCookie {
+		StoredCookie() {
+		}
+
+		StoredCookie(Cookie cookie) {
+			name = cookie.getName();
+			value = cookie.getValue();
+			domain = cookie.getDomain();
+			path = cookie.getPath();
+			expiry = cookie.getExpiry() == null ? null : cookie.getExpiry().getTime();
+			secure = cookie.isSecure();
+			httpOnly = cookie.isHttpOnly();
+		}
+
+		Cookie toCookie() {
+			return new Cookie(name, value, domain, path, expiry == null ? null : new Date(expiry), secure, httpOnly);
+		}
+
+		String name;
+		String value;
+		String domain;
+		String path;
+		Long expiry;
+		boolean secure;
+		boolean httpOnly;
+	}
+
+	private static class Holder {
+		static final LoginStateCache CACHE = new LoginStateCache();
+	}
+
+	private static final String READ_STORAGE_SCRIPT = "function copy(storage) { var items = {};"
+			+ " for (var i = 0; i < storage.length; i++) { var key = storage.key(i); items[key] = storage.getItem(key); }"
+			+ " return items; }"
+			+ "return {local: copy(window.localStorage), session: copy(window.sessionStorage)};";
+
+	private static final String WRITE_STORAGE_SCRIPT = "function fill(storage, items) {"
+			+ " for (var key in items) { storage.setItem(key, items[key]); } }"
+			+ "fill(window.localStorage, arguments[0] || {}); fill(window.sessionStorage, arguments[1] || {});";
+
+	private static final Log log = LogFactory.getLog(LoginStateCache.class);
+
+	private final Gson gson = new Gson();
+	private final Map<String, LoginState> states = new ConcurrentHashMap<String, LoginState>();
+}
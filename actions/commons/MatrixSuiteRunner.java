@@ -0,0 +1,152 @@
+package commons;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.TestNG;
+import org.testng.xml.Parser;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlMethodSelector;
+import org.testng.xml.XmlPackage;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+/**
+ * Runs the tests of a suite file on several browsers at once. Each browser gets
+ * its own copy of the suite, with a copy of every &lt;test&gt; of the file
+ * (parameters, groups, packages, classes and methods), and the copies run side
+ * by side in a single TestNG run, so they end up in one report.
+ *
+ * Inside the copy of a browser, at most DRIVER_POOL_SIZE &lt;test&gt; run in
+ * parallel, the number of sessions the {@link DriverPool} keeps per browser.
+ * The matrix takes about as long as the slowest browser.
+ *
+ * <pre>
+ * java commons.MatrixSuiteRunner [suite file] [browsers]
+ * java commons.MatrixSuiteRunner resources/runTestcase.xml CHROME,FIREFOX,EDGE_CHROMIUM
+ * </pre>
+ */
+public class MatrixSuiteRunner {
+
+	public static void main(String[] args) throws IOException {
+		String suiteFile = args.length > 0 ? args[0] : GlobalConstants.MATRIX_SUITE_FILE;
+		List<String> browsers = Arrays.asList((args.length > 1 ? args[1] : GlobalConstants.MATRIX_BROWSERS).split(","));
+
+		List<XmlSuite> suites = buildSuites(suiteFile, browsers);
+		TestNG testNG = new TestNG();
+		testNG.setXmlSuites(suites);
+		testNG.setSuiteThreadPoolSize(suites.size());
+		testNG.run();
+		System.exit(testNG.getStatus());
+	}
+
+	/**
+	 * Expand the tests of the suite file across the browsers
+	 *
+	 * @param suiteFile TestNG suite file, such as resources/runTestcase.xml
+	 * @param browsers  names of {@link BaseTest.BROWSER} values
+	 * @return one suite per suite of the file and browser
+	 * @throws IOException if the suite file can not be read
+	 */
+	public static List<XmlSuite> buildSuites(String suiteFile, List<String> browsers) throws IOException {
+		for (String browser : browsers) {
+			// fail before starting anything if a browser is not supported
+			BrowserProfile.of(browser.trim());
+		}
+		List<XmlSuite> matrixSuites = new ArrayList<XmlSuite>();
+		for (XmlSuite suite : new Parser(suiteFile).parseToList()) {
+			for (String browser : browsers) {
+				matrixSuites.add(buildSuite(suite, browser.trim()));
+			}
+		}
+		log.info("Matrix of " + matrixSuites.size() + " suites on " + browsers);
+		return matrixSuites;
+	}
+
+	private static XmlSuite buildSuite(XmlSuite template, String browser) {
+		XmlSuite suite = new XmlSuite();
+		suite.setName(template.getName() + " on " + browser);
+		suite.setListeners(new ArrayList<String>(template.getListeners()));
+		Map<String, String> parameters = new HashMap<String, String>(template.getParameters());
+		parameters.put("browser", browser);
+		suite.setParameters(parameters);
+		suite.setGroups(template.getGroups());
+		suite.setPreserveOrder(template.getPreserveOrder());
+		suite.setParallel(XmlSuite.ParallelMode.TESTS);
+		suite.setThreadCount(GlobalConstants.DRIVER_POOL_SIZE);
+
+		for (XmlTest templateTest : template.getTests()) {
+			copyTest(templateTest, suite, browser);
+		}
+		return suite;
+	}
+
+	/**
+	 * Copy a &lt;test&gt; of the template into the suite of a browser, with its
+	 * parameters, groups, packages, classes and included or excluded methods. A
+	 * browser parameter of the test is replaced by the browser of the copy.
+	 */
+	private static XmlTest copyTest(XmlTest template, XmlSuite suite, String browser) {
+		XmlTest test = new XmlTest(suite);
+		test.setName(template.getName() + " on " + browser);
+		Map<String, String> parameters = new HashMap<String, String>(template.getLocalParameters());
+		if (parameters.containsKey("browser")) {
+			parameters.put("browser", browser);
+		}
+		test.setParameters(parameters);
+		test.setGroups(template.getXmlGroups());
+		test.setMethodSelectors(new ArrayList<XmlMethodSelector>(template.getMethodSelectors()));
+		if (template.getParallel() != null && template.getParallel().isParallel()) {
+			test.setParallel(template.getParallel());
+			test.setThreadCount(template.getThreadCount());
+		}
+		test.setPreserveOrder(template.getPreserveOrder());
+		test.setVerbose(template.getVerbose());
+		test.setGroupByInstances(template.getGroupByInstances());
+		if (template.getTimeOut() != null) {
+			test.setTimeOut(template.getTimeOut(0));
+		}
+
+		List<XmlPackage> packages = new ArrayList<XmlPackage>();
+		for (XmlPackage templatePackage : template.getXmlPackages()) {
+			XmlPackage xmlPackage = new XmlPackage(templatePackage.getName());
+			xmlPackage.setInclude(new ArrayList<String>(templatePackage.getInclude()));
+			xmlPackage.setExclude(new ArrayList<String>(templatePackage.getExclude()));
+			packages.add(xmlPackage);
+		}
+		test.setXmlPackages(packages);
+
+		List<XmlClass> classes = new ArrayList<XmlClass>();
+		for (XmlClass templateClass : template.getXmlClasses()) {
+			classes.add(copyClass(templateClass));
+		}
+		test.setXmlClasses(classes);
+		return test;
+	}
+
+	private static XmlClass copyClass(XmlClass template) {
+		XmlClass testClass = new XmlClass(template.getName(), template.getIndex(), false);
+		testClass.setParameters(new HashMap<String, String>(template.getLocalParameters()));
+		List<XmlInclude> includes = new ArrayList<XmlInclude>();
+		for (XmlInclude templateInclude : template.getIncludedMethods()) {
+			XmlInclude include = new XmlInclude(templateInclude.getName(),
+					new ArrayList<Integer>(templateInclude.getInvocationNumbers()), templateInclude.getIndex());
+			include.setDescription(templateInclude.getDescription());
+			include.setParameters(new HashMap<String, String>(templateInclude.getLocalParameters()));
+			include.setXmlClass(testClass);
+			includes.add(include);
+		}
+		testClass.setIncludedMethods(includes);
+		testClass.setExcludedMethods(new ArrayList<String>(template.getExcludedMethods()));
+		return testClass;
+	}
+
+	private static final Log log = LogFactory.getLog(MatrixSuiteRunner.class);
+}
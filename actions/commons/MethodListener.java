@@ -1,24 +1,50 @@
 package commons;
 
+import java.io.File;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.testng.IInvokedMethod;
 import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestResult;
 import org.testng.Reporter;
-import org.testng.internal.Utils;
 
-public class MethodListener implements IInvokedMethodListener {
+public class MethodListener implements IInvokedMethodListener, ISuiteListener {
+	@Override
+	public void onStart(ISuite suite) {
+	}
+
+	@Override
+	public void onFinish(ISuite suite) {
+		// the appenders stay open for the suites that follow in this JVM
+		TestNGAppender.finishSuite();
+	}
+
 	@Override
 	public void beforeInvocation(IInvokedMethod method, ITestResult result) {
 		log.debug("Before invocation of " + method.getTestMethod().getMethodName());
+		SmartWait.clearReports();
+		CommandTracer.clear();
 	}
 
 	@Override
 	public void afterInvocation(IInvokedMethod method, ITestResult result) {
 		log.debug("After invocation of " + method.getTestMethod().getMethodName());
+		for (WaitReport report : SmartWait.getReports()) {
+			log.debug("Wait " + report);
+		}
+		if (method.isTestMethod()) {
+			// the last lines of the test must reach its result before it is reported
+			TestNGAppender.flushAll();
+			File trace = CommandTracer.writeTrace(
+					result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName());
+			if (trace != null) {
+				log.debug("Command trace written to " + trace);
+			}
+		}
 		Reporter.setCurrentTestResult(result);
 		if (method.isTestMethod()) {
 			VerificationFailures allFailures = VerificationFailures.getFailures();
@@ -28,25 +54,23 @@ public class MethodListener implements IInvokedMethodListener {
 				allFailures.addFailureForTest(result, result.getThrowable());
 			}
 
-			List<Throwable> failures = allFailures.getFailuresForTest(result);
-			int size = failures.size() - 1;
+			List<Throwable> failures = allFailures.removeFailuresForTest(result);
+			int size = failures.size();
 
 			if (size > 0) {
 				result.setStatus(ITestResult.FAILURE);
 				if (size == 1) {
 					result.setThrowable(failures.get(0));
 				} else {
-					StringBuffer message = new StringBuffer("Multiple failures (").append(size).append("):\n");
-					for (int failure = 0; failure < size - 1; failure++) {
-						message.append("Failure ").append(failure + 1).append(" of ").append(size).append("\n");
-						message.append(Utils.longStackTrace(failures.get(failure), false)).append("\n");
+					result.setThrowable(new MultipleFailuresException(failures));
+				}
+			}
+
+			if (result.getStatus() == ITestResult.SUCCESS && result.getParameters() != null) {
+				for (Object parameter : result.getParameters()) {
+					if (parameter instanceof Checkpointed) {
+						((Checkpointed) parameter).markDone();
 					}
-					Throwable last = failures.get(size - 1);
-					message.append("Failure ").append(size).append(" of ").append(size).append("\n");
-					message.append(last.toString());
-					Throwable merged = new Throwable(message.toString());
-					merged.setStackTrace(last.getStackTrace());
-					result.setThrowable(merged);
 				}
 			}
 		}
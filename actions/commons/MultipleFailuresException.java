@@ -0,0 +1,75 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.internal.Utils;
+
+/**
+ * Failure of a test with several soft assertion failures. The original
+ * throwables are kept, with their stack traces cut to FAILURE_STACK_DEPTH
+ * frames; the full message is only built when a reporter asks for it.
+ */
+public class MultipleFailuresException extends AssertionError {
+
+	public MultipleFailuresException(List<Throwable> failures) {
+		super();
+		this.failures = Collections.unmodifiableList(new ArrayList<Throwable>(failures));
+		Map<Throwable, Boolean> trimmed = new IdentityHashMap<Throwable, Boolean>();
+		for (Throwable failure : this.failures) {
+			trimStackTrace(failure, trimmed);
+		}
+		setStackTrace(this.failures.get(this.failures.size() - 1).getStackTrace());
+	}
+
+	public List<Throwable> getFailures() {
+		return failures;
+	}
+
+	public int getFailureCount() {
+		return failures.size();
+	}
+
+	@Override
+	public synchronized String getMessage() {
+		if (message == null) {
+			message = render();
+		}
+		return message;
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		// the stack trace of the last failure is used instead
+		return this;
+	}
+
+	private String render() {
+		int size = failures.size();
+		StringBuilder builder = new StringBuilder("Multiple failures (").append(size).append("):\n");
+		for (int failure = 0; failure < size - 1; failure++) {
+			builder.append("Failure ").append(failure + 1).append(" of ").append(size).append("\n");
+			builder.append(Utils.longStackTrace(failures.get(failure), false)).append("\n");
+		}
+		builder.append("Failure ").append(size).append(" of ").append(size).append("\n");
+		builder.append(failures.get(size - 1).toString());
+		return builder.toString();
+	}
+
+	private static void trimStackTrace(Throwable throwable, Map<Throwable, Boolean> trimmed) {
+		for (; throwable != null && trimmed.put(throwable, Boolean.TRUE) == null; throwable = throwable.getCause()) {
+			StackTraceElement[] stackTrace = throwable.getStackTrace();
+			if (stackTrace.length > GlobalConstants.FAILURE_STACK_DEPTH) {
+				throwable.setStackTrace(Arrays.copyOf(stackTrace, GlobalConstants.FAILURE_STACK_DEPTH));
+			}
+		}
+	}
+
+	private static final long serialVersionUID = 1L;
+	private final List<Throwable> failures;
+	private String message;
+}
@@ -0,0 +1,100 @@
+package commons;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Load time, transferred bytes and number of resources of the pages opened by
+ * the tests, read from the Navigation and Resource Timing API of the browser.
+ * Comparing a run with RESOURCE_FILTER_ENABLED against a run without it shows
+ * what the {@link ResourceFilterProxy} saves.
+ *
+ * Reading the timing takes one more script per page load, so the statistics
+ * are opt-in: -Dpage.load.stats=true.
+ */
+public final class PageLoadStats {
+	private PageLoadStats() {
+	}
+
+	/**
+	 * Read the timing of the page the driver just loaded
+	 *
+	 * @param driver
+	 */
+	@SuppressWarnings("unchecked")
+	public static void record(WebDriver driver) {
+		if (!GlobalConstants.PAGE_LOAD_STATS_ENABLED) {
+			return;
+		}
+		try {
+			Map<String, Object> timing = (Map<String, Object>) ((JavascriptExecutor) driver)
+					.executeScript(TIMING_SCRIPT);
+			loads.increment();
+			loadMillis.add(toLong(timing.get("load")));
+			domContentLoadedMillis.add(toLong(timing.get("domContentLoaded")));
+			transferredBytes.add(toLong(timing.get("transfer")));
+			resources.add(toLong(timing.get("resources")));
+		} catch (RuntimeException e) {
+			// statistics must never fail a navigation
+		}
+	}
+
+	public static long getLoadCount() {
+		return loads.sum();
+	}
+
+	public static long getAverageLoadMillis() {
+		return average(loadMillis);
+	}
+
+	public static long getAverageDomContentLoadedMillis() {
+		return average(domContentLoadedMillis);
+	}
+
+	public static long getAverageTransferredBytes() {
+		return average(transferredBytes);
+	}
+
+	public static long getAverageResourceCount() {
+		return average(resources);
+	}
+
+	/**
+	 * @return averages per page load, tagged with the state of the resource filter
+	 */
+	public static String getStatistics() {
+		return "resourceFilter=" + (GlobalConstants.RESOURCE_FILTER_ENABLED ? "on" : "off") + ", loads="
+				+ getLoadCount() + ", loadMs=" + getAverageLoadMillis() + ", domContentLoadedMs="
+				+ getAverageDomContentLoadedMillis() + ", transferredBytes=" + getAverageTransferredBytes()
+				+ ", resources=" + getAverageResourceCount();
+	}
+
+	private static long average(LongAdder total) {
+		long count = loads.sum();
+		return count == 0 ? 0 : total.sum() / count;
+	}
+
+	private static long toLong(Object value) {
+		return value instanceof Number ? Math.max(0, ((Number) value).longValue()) : 0;
+	}
+
+	private static final String TIMING_SCRIPT = "var resources = performance.getEntriesByType('resource');"
+			+ "var bytes = 0; for (var i = 0; i < resources.length; i++) { bytes += resources[i].transferSize || 0; }"
+			+ "var nav = performance.getEntriesByType('navigation')[0];"
+			+ "if (nav) { return {load: nav.loadEventEnd - nav.startTime,"
+			+ " domContentLoaded: nav.domContentLoadedEventEnd - nav.startTime,"
+			+ " transfer: bytes + (nav.transferSize || 0), resources: resources.length}; }"
+			+ "var t = performance.timing;"
+			+ "return {load: t.loadEventEnd - t.navigationStart,"
+			+ " domContentLoaded: t.domContentLoadedEventEnd - t.navigationStart,"
+			+ " transfer: bytes, resources: resources.length};";
+
+	private static final LongAdder loads = new LongAdder();
+	private static final LongAdder loadMillis = new LongAdder();
+	private static final LongAdder domContentLoadedMillis = new LongAdder();
+	private static final LongAdder transferredBytes = new LongAdder();
+	private static final LongAdder resources = new LongAdder();
+}
@@ -0,0 +1,165 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * In-memory copy of the state of a part of the page, read in one browser call.
+ * Assertions on text, attributes and displayed/enabled/selected state can then
+ * run without any further round-trip.
+ *
+ * A snapshot is only valid for the driver it was taken with, until:
+ * <ul>
+ * <li>BasePage performs an action that may change the page (click, typing,
+ * select, navigation, alert, window or frame switch, JS action), or</li>
+ * <li>it is older than SNAPSHOT_MAX_AGE_MILLIS, or</li>
+ * <li>{@link #invalidate()} is called by the test.</li>
+ * </ul>
+ */
+public class PageSnapshot {
+
+	private PageSnapshot(WebDriver driver, Map<String, ElementState> byLocator, List<ElementState> region) {
+		this.driver = driver;
+		this.byLocator = byLocator;
+		this.region = region;
+		this.takenAt = System.nanoTime();
+	}
+
+	/**
+	 * Read the state of the given elements
+	 *
+	 * @param driver
+	 * @param locators XPath of the elements
+	 * @return the snapshot
+	 */
+	public static PageSnapshot of(WebDriver driver, String... locators) {
+		Map<String, ElementState> states = new LinkedHashMap<String, ElementState>();
+		for (ElementState state : ScriptBatch.readStates(driver, locators)) {
+			states.put(state.getLocator(), state);
+		}
+		return new PageSnapshot(driver, states, Collections.<ElementState>emptyList());
+	}
+
+	/**
+	 * Read the state of an element and of every element inside it
+	 *
+	 * @param driver
+	 * @param regionLocator XPath of the region, such as a form or a table
+	 * @return the snapshot
+	 */
+	public static PageSnapshot ofRegion(WebDriver driver, String regionLocator) {
+		ScriptBatch batch = new ScriptBatch(driver);
+		ScriptBatch.Result<List<ElementState>> states = batch.readRegion(regionLocator);
+		batch.execute();
+		Map<String, ElementState> byLocator = new LinkedHashMap<String, ElementState>();
+		if (!states.get().isEmpty()) {
+			byLocator.put(regionLocator, states.get().get(0));
+		}
+		return new PageSnapshot(driver, byLocator, Collections.unmodifiableList(states.get()));
+	}
+
+	/**
+	 * @param locator XPath given when the snapshot was taken
+	 * @return the state of the element, or null if the snapshot does not hold this
+	 *         locator
+	 */
+	public ElementState get(String locator) {
+		return byLocator.get(locator);
+	}
+
+	/**
+	 * @return every element of a region snapshot, in document order
+	 */
+	public List<ElementState> getRegionElements() {
+		return region;
+	}
+
+	/**
+	 * @param id
+	 * @return the first element of the region with this id, or null
+	 */
+	public ElementState findById(String id) {
+		return findByAttribute("id", id);
+	}
+
+	/**
+	 * @param name
+	 * @return the first element of the region with this name, or null
+	 */
+	public ElementState findByName(String name) {
+		return findByAttribute("name", name);
+	}
+
+	/**
+	 * @param tagName
+	 * @return the elements of the region with this tag
+	 */
+	public List<ElementState> findAllByTagName(String tagName) {
+		List<ElementState> elements = new ArrayList<ElementState>();
+		for (ElementState element : region) {
+			if (tagName.equalsIgnoreCase(element.getTagName())) {
+				elements.add(element);
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * @param driver
+	 * @return true if the snapshot can still be used to answer for this driver
+	 */
+	public boolean isValidFor(WebDriver driver) {
+		return valid && this.driver == driver && System.nanoTime() - takenAt <= TimeUnit.MILLISECONDS
+				.toNanos(GlobalConstants.SNAPSHOT_MAX_AGE_MILLIS);
+	}
+
+	public void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * @return the valid snapshot of the current thread for this driver, or null
+	 */
+	static PageSnapshot current(WebDriver driver) {
+		PageSnapshot snapshot = current.get();
+		if (snapshot == null) {
+			return null;
+		}
+		if (!snapshot.isValidFor(driver)) {
+			current.remove();
+			return null;
+		}
+		return snapshot;
+	}
+
+	static void setCurrent(PageSnapshot snapshot) {
+		current.set(snapshot);
+	}
+
+	static void clearCurrent() {
+		current.remove();
+	}
+
+	private ElementState findByAttribute(String attributeName, String value) {
+		for (ElementState element : region) {
+			if (value.equals(element.getAttribute(attributeName))) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	private static final ThreadLocal<PageSnapshot> current = new ThreadLocal<PageSnapshot>();
+
+	private final WebDriver driver;
+	private final Map<String, ElementState> byLocator;
+	private final List<ElementState> region;
+	private final long takenAt;
+	private volatile boolean valid = true;
+}
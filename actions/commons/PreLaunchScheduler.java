@@ -0,0 +1,129 @@
+package commons;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+/**
+ * Reads the plan of the suite when it starts (the browser and url parameters of
+ * each &lt;test&gt;) and launches the browsers it needs in the background, so
+ * the first test of each thread leases a warm session from the
+ * {@link DriverPool} instead of waiting for a cold browser.
+ *
+ * A browser gets as many sessions as it can use at once: the number of its
+ * tests, capped by the suite thread count and DRIVER_POOL_SIZE. Browsers are
+ * launched in the order of the plan, one at a time, and only while the free
+ * physical memory stays above PRELAUNCH_MEMORY_PER_BROWSER_MB per browser plus
+ * PRELAUNCH_MEMORY_RESERVE_MB.
+ */
+public class PreLaunchScheduler implements ISuiteListener {
+
+	@Override
+	public void onStart(ISuite suite) {
+		if (!GlobalConstants.PRELAUNCH_ENABLED) {
+			return;
+		}
+		final Map<BrowserProfile, String> urls = new LinkedHashMap<BrowserProfile, String>();
+		final Map<BrowserProfile, Integer> demand = getDemand(suite.getXmlSuite(), urls);
+		if (demand.isEmpty()) {
+			return;
+		}
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "driver-prelaunch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				prelaunch(demand, urls);
+			}
+		});
+	}
+
+	@Override
+	public void onFinish(ISuite suite) {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * @param suite
+	 * @param urls  filled with the url of each profile
+	 * @return number of sessions each profile can use at once, in the order of
+	 *         the plan
+	 */
+	private Map<BrowserProfile, Integer> getDemand(XmlSuite suite, Map<BrowserProfile, String> urls) {
+		int parallelTests = suite.getParallel() != null && suite.getParallel().isParallel() ? suite.getThreadCount()
+				: 1;
+		int limit = Math.min(parallelTests, GlobalConstants.DRIVER_POOL_SIZE);
+		Map<BrowserProfile, Integer> demand = new LinkedHashMap<BrowserProfile, Integer>();
+		for (XmlTest test : suite.getTests()) {
+			String browser = test.getParameter("browser");
+			String url = test.getParameter("url");
+			if (browser == null || url == null) {
+				continue;
+			}
+			BrowserProfile profile;
+			try {
+				profile = BrowserProfile.of(browser);
+			} catch (RuntimeException e) {
+				// the test reports its invalid browser itself
+				continue;
+			}
+			Integer count = demand.get(profile);
+			demand.put(profile, Math.min(limit, count == null ? 1 : count + 1));
+			urls.put(profile, url);
+		}
+		return demand;
+	}
+
+	private void prelaunch(Map<BrowserProfile, Integer> demand, Map<BrowserProfile, String> urls) {
+		for (Map.Entry<BrowserProfile, Integer> entry : demand.entrySet()) {
+			for (int i = 0; i < entry.getValue(); i++) {
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				if (!hasMemoryForBrowser()) {
+					log.info("Not enough free memory to prelaunch more browsers");
+					return;
+				}
+				if (!DriverPool.getPool().prewarm(entry.getKey(), urls.get(entry.getKey()))) {
+					// the tests already use every session of this profile
+					break;
+				}
+			}
+		}
+	}
+
+	private static boolean hasMemoryForBrowser() {
+		java.lang.management.OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+		if (!(system instanceof com.sun.management.OperatingSystemMXBean)) {
+			return true;
+		}
+		@SuppressWarnings("deprecation")
+		long freeBytes = ((com.sun.management.OperatingSystemMXBean) system).getFreePhysicalMemorySize();
+		long neededMegabytes = GlobalConstants.PRELAUNCH_MEMORY_PER_BROWSER_MB
+				+ GlobalConstants.PRELAUNCH_MEMORY_RESERVE_MB;
+		return freeBytes / (1024 * 1024) >= neededMegabytes;
+	}
+
+	private static final Log log = LogFactory.getLog(PreLaunchScheduler.class);
+
+	private volatile ExecutorService executor;
+}
@@ -0,0 +1,333 @@
+package commons;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openqa.selenium.Proxy;
+
+/**
+ * Local HTTP proxy the browsers are started with, which drops requests for
+ * resources the tests don't need: analytics, fonts, trackers...
+ *
+ * HTTPS requests are tunnelled with CONNECT, so they can only be filtered by
+ * host (RESOURCE_FILTER_BLOCKED_HOSTS, which also matches sub-domains). Plain
+ * HTTP requests can also be filtered by URL (RESOURCE_FILTER_BLOCKED_URLS,
+ * regular expressions). The proxy counts the requests it blocked, per host, and
+ * the requests and bytes it let through.
+ *
+ * A blocked request is never sent, so its size is unknown: the bytes saved are
+ * estimated as the blocked requests times the mean size of a response the
+ * proxy let through.
+ */
+public class ResourceFilterProxy {
+	private ResourceFilterProxy() {
+		blockedUrls = Pattern.compile(GlobalConstants.RESOURCE_FILTER_BLOCKED_URLS);
+	}
+
+	// Singleton Pattern
+	public static ResourceFilterProxy getProxy() {
+		return Holder.PROXY;
+	}
+
+	/**
+	 * @return the proxy to give to the browser, started on first use
+	 */
+	public synchronized Proxy getSeleniumProxy() {
+		if (server == null) {
+			start();
+		}
+		String address = "127.0.0.1:" + server.getLocalPort();
+		Proxy proxy = new Proxy();
+		proxy.setHttpProxy(address);
+		proxy.setSslProxy(address);
+		return proxy;
+	}
+
+	public long getBlockedCount() {
+		return blocked.sum();
+	}
+
+	public long getAllowedCount() {
+		return allowed.sum();
+	}
+
+	/**
+	 * @return bytes sent by the browser and received from the servers through the
+	 *         proxy
+	 */
+	public long getTransferredBytes() {
+		return transferredBytes.sum();
+	}
+
+	/**
+	 * @return blocked requests per host
+	 */
+	public Map<String, Long> getBlockedHosts() {
+		Map<String, Long> hosts = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : blockedHosts.entrySet()) {
+			hosts.put(entry.getKey(), entry.getValue().get());
+		}
+		return hosts;
+	}
+
+	/**
+	 * @return bytes received from the servers through the proxy
+	 */
+	public long getResponseBytes() {
+		return responseBytes.sum();
+	}
+
+	/**
+	 * @return estimate of the bytes the blocked requests would have downloaded:
+	 *         the blocked requests times the mean response size of the allowed
+	 *         ones
+	 */
+	public long getEstimatedSavedBytes() {
+		long allowedCount = getAllowedCount();
+		return allowedCount == 0 ? 0 : getBlockedCount() * (getResponseBytes() / allowedCount);
+	}
+
+	@Override
+	public String toString() {
+		return "allowed=" + getAllowedCount() + ", blocked=" + getBlockedCount() + ", transferredBytes="
+				+ getTransferredBytes() + ", estimatedSavedBytes=" + getEstimatedSavedBytes() + ", blockedHosts="
+				+ getBlockedHosts();
+	}
+
+	private void start() {
+		try {
+			server = new ServerSocket(0, 100, InetAddress.getLoopbackAddress());
+		} catch (IOException e) {
+			throw new RuntimeException("Resource filter proxy can not be started", e);
+		}
+		workers = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "resource-filter-proxy");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		});
+		log.info("Resource filter proxy listening on port " + server.getLocalPort());
+	}
+
+	private void accept() {
+		while (!server.isClosed()) {
+			try {
+				final Socket client = server.accept();
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						handle(client);
+					}
+				});
+			} catch (IOException e) {
+				log.debug("Resource filter proxy stopped accepting: " + e.getMessage());
+			}
+		}
+	}
+
+	private void handle(Socket client) {
+		try (Socket browser = client) {
+			InputStream in = new BufferedInputStream(browser.getInputStream());
+			byte[] head = readHead(in);
+			if (head == null) {
+				return;
+			}
+			String headText = new String(head, StandardCharsets.ISO_8859_1);
+			String[] requestLine = headText.substring(0, headText.indexOf("\r\n")).split(" ");
+			if (requestLine.length < 3) {
+				return;
+			}
+			if ("CONNECT".equalsIgnoreCase(requestLine[0])) {
+				tunnel(browser, in, requestLine[1]);
+			} else {
+				forward(browser, in, requestLine, headText);
+			}
+		} catch (IOException | RuntimeException e) {
+			log.debug("Resource filter proxy request failed: " + e.getMessage());
+		}
+	}
+
+	private void tunnel(Socket browser, InputStream in, String authority) throws IOException {
+		int colon = authority.lastIndexOf(':');
+		String host = colon < 0 ? authority : authority.substring(0, colon);
+		int port = colon < 0 ? 443 : Integer.parseInt(authority.substring(colon + 1));
+		if (isBlockedHost(host)) {
+			block(browser, host, "403 Forbidden");
+			return;
+		}
+		allowed.increment();
+		try (Socket server = connect(host, port)) {
+			browser.getOutputStream()
+					.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+			pipe(browser, in, server);
+		}
+	}
+
+	private void forward(Socket browser, InputStream in, String[] requestLine, String headText)
+			throws IOException {
+		URI uri = URI.create(requestLine[1]);
+		String host = uri.getHost();
+		if (host == null) {
+			respond(browser, "400 Bad Request");
+			return;
+		}
+		if (isBlockedHost(host) || blockedUrls.matcher(requestLine[1]).find()) {
+			block(browser, host, "204 No Content");
+			return;
+		}
+		allowed.increment();
+		String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+		if (uri.getRawQuery() != null) {
+			path += "?" + uri.getRawQuery();
+		}
+		// one request per connection keeps the filtering simple
+		String headers = headText.substring(headText.indexOf("\r\n") + 2)
+				.replaceAll("(?im)^(proxy-)?connection:.*\r\n", "").replaceAll("(?im)^keep-alive:.*\r\n", "");
+		String request = requestLine[0] + " " + path + " " + requestLine[2] + "\r\nConnection: close\r\n" + headers;
+		try (Socket server = connect(host, uri.getPort() < 0 ? 80 : uri.getPort())) {
+			byte[] bytes = request.getBytes(StandardCharsets.ISO_8859_1);
+			server.getOutputStream().write(bytes);
+			transferredBytes.add(bytes.length);
+			pipe(browser, in, server);
+		}
+	}
+
+	private void block(Socket browser, String host, String status) throws IOException {
+		blocked.increment();
+		AtomicLong count = blockedHosts.get(host);
+		if (count == null) {
+			AtomicLong created = new AtomicLong();
+			count = blockedHosts.putIfAbsent(host, created);
+			if (count == null) {
+				count = created;
+			}
+		}
+		count.incrementAndGet();
+		respond(browser, status);
+	}
+
+	private void respond(Socket browser, String status) throws IOException {
+		browser.getOutputStream().write(("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+				.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private boolean isBlockedHost(String host) {
+		String lowerHost = host.toLowerCase();
+		for (String blockedHost : GlobalConstants.RESOURCE_FILTER_BLOCKED_HOSTS) {
+			if (lowerHost.equals(blockedHost) || lowerHost.endsWith("." + blockedHost)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Socket connect(String host, int port) throws IOException {
+		Socket server = new Socket();
+		server.connect(new InetSocketAddress(host, port), GlobalConstants.SHORT_TIMEOUT * 1000);
+		return server;
+	}
+
+	/**
+	 * Copy both directions until one side closes. The browser to server direction
+	 * runs on another worker.
+	 */
+	private void pipe(Socket browser, final InputStream in, final Socket server) throws IOException {
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					copy(in, server.getOutputStream(), null);
+					server.shutdownOutput();
+				} catch (IOException e) {
+					// the other direction closes both sockets
+				}
+			}
+		});
+		copy(server.getInputStream(), browser.getOutputStream(), responseBytes);
+	}
+
+	/**
+	 * @param received counter of the bytes received from the server, or null for
+	 *                 the bytes sent by the browser
+	 */
+	private void copy(InputStream in, OutputStream out, LongAdder received) throws IOException {
+		byte[] buffer = new byte[16 * 1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+			out.flush();
+			transferredBytes.add(read);
+			if (received != null) {
+				received.add(read);
+			}
+		}
+	}
+
+	/**
+	 * @return the request line and headers, up to the empty line, or null if the
+	 *         connection closed first
+	 */
+	private static byte[] readHead(InputStream in) throws IOException {
+		ByteArrayOutputStream head = new ByteArrayOutputStream();
+		int last = 0;
+		int next;
+		while ((next = in.read()) != -1) {
+			head.write(next);
+			last = (last << 8) | next;
+			if (last == END_OF_HEAD) {
+				return head.toByteArray();
+			}
+			if (head.size() > MAX_HEAD_BYTES) {
+				throw new IOException("Request head is too large");
+			}
+		}
+		return null;
+	}
+
+	private static class Holder {
+		static final ResourceFilterProxy PROXY = new ResourceFilterProxy();
+	}
+
+	private static final int MAX_HEAD_BYTES = 64 * 1024;
+	// \r\n\r\n
+	private static final int END_OF_HEAD = 0x0D0A0D0A;
+
+	private static final Log log = LogFactory.getLog(ResourceFilterProxy.class);
+
+	private final Pattern blockedUrls;
+	private final LongAdder allowed = new LongAdder();
+	private final LongAdder blocked = new LongAdder();
+	private final LongAdder transferredBytes = new LongAdder();
+	private final LongAdder responseBytes = new LongAdder();
+	private final Map<String, AtomicLong> blockedHosts = new ConcurrentHashMap<String, AtomicLong>();
+	private ServerSocket server;
+	private ExecutorService workers;
+}
@@ -0,0 +1,327 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Queues element reads and actions and sends them to the browser in a single
+ * executeScript call. Elements are located by XPath inside the page, so a batch
+ * costs one round-trip whatever the number of locators.
+ *
+ * All elements are resolved before any action runs: when one is missing the
+ * batch does nothing and {@link #execute()} throws, so it can safely be
+ * executed again. Missing elements are only allowed for state and region
+ * reads.
+ */
+public class ScriptBatch {
+	public ScriptBatch(WebDriver driver) {
+		this.driver = driver;
+	}
+
+	/**
+	 * Read tag, text, attributes and displayed/enabled/selected state of all the
+	 * locators in one call
+	 *
+	 * @param driver
+	 * @param locators XPath of the elements
+	 * @return the states, in the order of the locators
+	 */
+	public static List<ElementState> readStates(WebDriver driver, String... locators) {
+		ScriptBatch batch = new ScriptBatch(driver);
+		List<Result<ElementState>> results = new ArrayList<Result<ElementState>>();
+		for (String locator : locators) {
+			results.add(batch.readState(locator));
+		}
+		batch.execute();
+		List<ElementState> states = new ArrayList<ElementState>();
+		for (Result<ElementState> result : results) {
+			states.add(result.get());
+		}
+		return states;
+	}
+
+	public Result<ElementState> readState(String locator) {
+		return queue("state", locator, null, null, new StateConverter(locator));
+	}
+
+	/**
+	 * @param locator XPath of the region
+	 * @return state of the region element and of every element inside it, in
+	 *         document order, or an empty list if the region is not in the page
+	 */
+	public Result<List<ElementState>> readRegion(String locator) {
+		return queue("region", locator, null, null, new RegionConverter());
+	}
+
+	/**
+	 * @param locator
+	 * @param attributeName
+	 * @return the attribute as WebElement.getAttribute reads it: "true" or null
+	 *         for boolean attributes, absolute URLs for href of links and src of
+	 *         images, the current value of properties such as value
+	 */
+	public Result<String> readAttribute(String locator, String attributeName) {
+		return queue("attribute", locator, attributeName, null, new StringConverter());
+	}
+
+	/**
+	 * @param locator
+	 * @param propertyName DOM property, such as validationMessage or value
+	 * @return the property, as converted by the driver
+	 */
+	public Result<Object> readProperty(String locator, String propertyName) {
+		return queue("property", locator, propertyName, null, new Converter<Object>() {
+			@Override
+			public Object convert(Object raw) {
+				return raw;
+			}
+		});
+	}
+
+	public Result<Boolean> readImageLoaded(String locator) {
+		return queue("imageLoaded", locator, null, null, new Converter<Boolean>() {
+			@Override
+			public Boolean convert(Object raw) {
+				return Boolean.TRUE.equals(raw);
+			}
+		});
+	}
+
+	public ScriptBatch click(String locator) {
+		queue("click", locator, null, null, null);
+		return this;
+	}
+
+	public ScriptBatch scrollIntoView(String locator) {
+		queue("scrollIntoView", locator, null, null, null);
+		return this;
+	}
+
+	public ScriptBatch setAttribute(String locator, String attributeName, String value) {
+		queue("setAttribute", locator, attributeName, value, null);
+		return this;
+	}
+
+	public ScriptBatch removeAttribute(String locator, String attributeName) {
+		queue("removeAttribute", locator, attributeName, null, null);
+		return this;
+	}
+
+	public int size() {
+		return operations.size();
+	}
+
+	/**
+	 * Send the queued operations to the browser and fill their results
+	 *
+	 * @throws MissingElementException if an element needed by an action or by a
+	 *                                 read other than a state or region read is
+	 *                                 missing
+	 */
+	@SuppressWarnings("unchecked")
+	public void execute() {
+		if (operations.isEmpty()) {
+			return;
+		}
+		Map<String, Object> response = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(BATCH_SCRIPT,
+				operations);
+		Object missing = response.get("missing");
+		if (missing != null) {
+			String locator = (String) operations.get(((Number) missing).intValue()).get("xpath");
+			throw new MissingElementException(locator);
+		}
+		List<Object> values = (List<Object>) response.get("results");
+		for (int i = 0; i < values.size(); i++) {
+			results.get(i).complete(values.get(i));
+		}
+		operations.clear();
+		results.clear();
+	}
+
+	/**
+	 * Result of a queued read, available once the batch is executed
+	 */
+	public static final class Result<T> {
+		private Result(Converter<T> converter) {
+			this.converter = converter;
+		}
+
+		public T get() {
+			if (!done) {
+				throw new IllegalStateException("The batch has not been executed yet");
+			}
+			return value;
+		}
+
+		private void complete(Object raw) {
+			value = converter == null ? null : converter.convert(raw);
+			done = true;
+		}
+
+		private final Converter<T> converter;
+		private T value;
+		private boolean done;
+	}
+
+	/**
+	 * Thrown when an element needed by the batch is not in the page. No operation
+	 * of the batch has run.
+	 */
+	public static class MissingElementException extends NoSuchElementException {
+		MissingElementException(String locator) {
+			super("Unable to locate element: " + locator);
+			this.locator = locator;
+		}
+
+		public String getLocator() {
+			return locator;
+		}
+
+		private static final long serialVersionUID = 1L;
+		private final String locator;
+	}
+
+	private <T> Result<T> queue(String type, String locator, String name, String value, Converter<T> converter) {
+		Map<String, Object> operation = new HashMap<String, Object>();
+		operation.put("op", type);
+		operation.put("xpath", locator);
+		if (name != null) {
+			operation.put("name", name);
+		}
+		if (value != null) {
+			operation.put("value", value);
+		}
+		operations.add(operation);
+		Result<T> result = new Result<T>(converter);
+		results.add(result);
+		return result;
+	}
+
+	private interface Converter<T> {
+		T convert(Object raw);
+	}
+
+	private static class StringConverter implements Converter<String> {
+		@Override
+		public String convert(Object raw) {
+			return raw == null ? null : raw.toString();
+		}
+	}
+
+	private static class StateConverter implements Converter<ElementState> {
+		StateConverter(String locator) {
+			this.locator = locator;
+		}
+
+		@Override
+		public ElementState convert(Object raw) {
+			return raw == null ? ElementState.missing(locator) : toState(locator, raw);
+		}
+
+		private final String locator;
+	}
+
+	private static class RegionConverter implements Converter<List<ElementState>> {
+		@Override
+		@SuppressWarnings("unchecked")
+		public List<ElementState> convert(Object raw) {
+			List<ElementState> states = new ArrayList<ElementState>();
+			if (raw != null) {
+				for (Object element : (List<Object>) raw) {
+					states.add(toState((String) ((Map<String, Object>) element).get("path"), element));
+				}
+			}
+			return states;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ElementState toState(String locator, Object raw) {
+		Map<String, Object> state = (Map<String, Object>) raw;
+		Map<String, String> attributes = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, Object> attribute : ((Map<String, Object>) state.get("attributes")).entrySet()) {
+			// a known attribute the element does not have is kept, with a null value
+			attributes.put(attribute.getKey(), attribute.getValue() == null ? null : String.valueOf(attribute.getValue()));
+		}
+		return new ElementState(locator, true, (String) state.get("tag"), (String) state.get("text"), attributes,
+				Boolean.TRUE.equals(state.get("displayed")), Boolean.TRUE.equals(state.get("enabled")),
+				Boolean.TRUE.equals(state.get("selected")));
+	}
+
+	// the rules of webdriver.atoms.element.attribute.get, the script behind WebElement.getAttribute
+	private static final String ATTRIBUTE_SCRIPT = "var BOOLEANS = ['allowfullscreen', 'allowpaymentrequest',"
+			+ " 'allowusermedia', 'async', 'autofocus', 'autoplay', 'checked', 'compact', 'complete', 'controls',"
+			+ " 'declare', 'default', 'defaultchecked', 'defaultselected', 'defer', 'disabled', 'ended',"
+			+ " 'formnovalidate', 'hidden', 'indeterminate', 'iscontenteditable', 'ismap', 'itemscope', 'loop',"
+			+ " 'multiple', 'muted', 'nohref', 'nomodule', 'noresize', 'noshade', 'novalidate', 'nowrap', 'open',"
+			+ " 'paused', 'playsinline', 'pubdate', 'readonly', 'required', 'reversed', 'scoped', 'seamless',"
+			+ " 'seeking', 'selected', 'truespeed', 'typemustmatch', 'willvalidate'];"
+			+ "var ALIASES = {'class': 'className', 'readonly': 'readOnly'};"
+			+ "function selectable(el) { var tag = el.tagName.toLowerCase(); if (tag === 'option') { return true; }"
+			+ " var type = (el.type || '').toLowerCase(); return tag === 'input' && (type === 'checkbox' || type === 'radio'); }"
+			+ "function attr(el, name) { var lower = name.toLowerCase(), tag = el.tagName.toLowerCase(), value;"
+			+ " if (lower === 'style') { value = el.style; return value && typeof value !== 'string' ? value.cssText : value; }"
+			+ " if ((lower === 'selected' || lower === 'checked') && selectable(el)) {"
+			+ "  return (tag === 'option' ? el.selected : el.checked) ? 'true' : null; }"
+			+ " if ((tag === 'img' && lower === 'src') || (tag === 'a' && lower === 'href')) {"
+			+ "  value = el.getAttribute(lower); return value ? el[lower] : value; }"
+			+ " var property = ALIASES[lower] || name;"
+			+ " if (BOOLEANS.indexOf(lower) >= 0) { return el.getAttribute(name) !== null || el[property] ? 'true' : null; }"
+			+ " value = el[property];"
+			+ " if (value === undefined || value === null || typeof value === 'object' || typeof value === 'function') {"
+			+ "  value = el.getAttribute(name); }"
+			+ " return value === undefined || value === null ? null : String(value); }";
+
+	private static final String BATCH_SCRIPT = ATTRIBUTE_SCRIPT + "var ops = arguments[0];"
+			+ "function find(xpath) { return document.evaluate(xpath, document, null,"
+			+ " XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue; }"
+			+ "function visible(el) { var style = window.getComputedStyle(el);"
+			+ " return style.visibility !== 'hidden' && style.display !== 'none'"
+			+ " && (el.offsetWidth > 0 || el.offsetHeight > 0 || el.getClientRects().length > 0); }"
+			+ "function path(el) { var steps = [];"
+			+ " for (; el && el.nodeType === 1; el = el.parentNode) { var index = 1;"
+			+ "  for (var s = el.previousElementSibling; s; s = s.previousElementSibling) {"
+			+ "   if (s.tagName === el.tagName) { index++; } }"
+			+ "  steps.unshift(el.tagName.toLowerCase() + '[' + index + ']'); }"
+			+ " return '/' + steps.join('/'); }"
+			+ "function state(el) { var attributes = {};"
+			+ " for (var j = 0; j < el.attributes.length; j++) { var name = el.attributes[j].name;"
+			+ "  attributes[name.toLowerCase()] = attr(el, name); }"
+			+ " attributes.value = attr(el, 'value');"
+			+ " for (var b = 0; b < BOOLEANS.length; b++) { attributes[BOOLEANS[b]] = attr(el, BOOLEANS[b]); }"
+			+ " var shown = visible(el);"
+			+ " return {tag: el.tagName.toLowerCase(), text: shown ? (el.innerText || '').trim() : '',"
+			+ " attributes: attributes, displayed: shown, enabled: !el.disabled, selected: !!(el.checked || el.selected)}; }"
+			+ "var elements = [];"
+			+ "for (var i = 0; i < ops.length; i++) { var found = find(ops[i].xpath);"
+			+ " if (!found && ops[i].op !== 'state' && ops[i].op !== 'region') { return {missing: i}; }"
+			+ " elements.push(found); }"
+			+ "var results = [];"
+			+ "for (var i = 0; i < ops.length; i++) { var op = ops[i], el = elements[i], result = null;"
+			+ " if (op.op === 'state') { if (el) { result = state(el); } }"
+			+ " else if (op.op === 'region') { result = []; if (el) {"
+			+ "  var all = [el].concat(Array.prototype.slice.call(el.getElementsByTagName('*')));"
+			+ "  for (var k = 0; k < all.length; k++) { var item = state(all[k]); item.path = path(all[k]);"
+			+ "   result.push(item); } } }"
+			+ " else if (op.op === 'attribute') { result = attr(el, op.name); }"
+			+ " else if (op.op === 'property') { result = el[op.name] === undefined ? null : el[op.name]; }"
+			+ " else if (op.op === 'imageLoaded') { result = el.complete"
+			+ "  && typeof el.naturalWidth != 'undefined' && el.naturalWidth > 0; }"
+			+ " else if (op.op === 'click') { el.click(); }"
+			+ " else if (op.op === 'scrollIntoView') { el.scrollIntoView(true); }"
+			+ " else if (op.op === 'setAttribute') { el.setAttribute(op.name, op.value); }"
+			+ " else if (op.op === 'removeAttribute') { el.removeAttribute(op.name); }"
+			+ " results.push(result); }"
+			+ "return {results: results};";
+
+	private final WebDriver driver;
+	private final List<Map<String, Object>> operations = new ArrayList<Map<String, Object>>();
+	private final List<Result<?>> results = new ArrayList<Result<?>>();
+}
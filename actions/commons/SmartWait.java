@@ -0,0 +1,185 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * Condition based wait used instead of fixed sleeps. The condition is polled
+ * from POLL_INTERVAL_MILLIS, doubling the interval after each miss up to
+ * MAX_POLL_INTERVAL_MILLIS, so fast conditions return quickly and slow ones do
+ * not flood the browser. Every call leaves a {@link WaitReport} for the current
+ * test thread.
+ */
+public class SmartWait {
+	public SmartWait(WebDriver driver) {
+		this.driver = driver;
+	}
+
+	/**
+	 * @param second maximum time to wait
+	 * @return this wait
+	 */
+	public SmartWait withTimeout(long second) {
+		this.timeoutMillis = TimeUnit.SECONDS.toMillis(second);
+		return this;
+	}
+
+	/**
+	 * @param initialMillis first poll interval
+	 * @param maxMillis     the interval doubles after each poll up to this value
+	 * @return this wait
+	 */
+	public SmartWait pollingEvery(long initialMillis, long maxMillis) {
+		this.initialPollMillis = initialMillis;
+		this.maxPollMillis = Math.max(initialMillis, maxMillis);
+		return this;
+	}
+
+	/**
+	 * Poll the condition until it returns neither null nor false
+	 *
+	 * @param name      name of the wait in the report
+	 * @param condition condition to poll
+	 * @return the last value of the condition
+	 * @throws TimeoutException if the condition is not met in time
+	 */
+	public <T> T until(String name, ExpectedCondition<T> condition) {
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		long interval = initialPollMillis;
+		int polls = 0;
+		RuntimeException lastException = null;
+		while (true) {
+			polls++;
+			try {
+				T value = condition.apply(driver);
+				if (value != null && !Boolean.FALSE.equals(value)) {
+					report(name, start, polls, true);
+					return value;
+				}
+			} catch (NotFoundException e) {
+				lastException = e;
+			} catch (StaleElementReferenceException e) {
+				lastException = e;
+			}
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remaining <= 0) {
+				report(name, start, polls, false);
+				throw new TimeoutException("Timed out after " + timeoutMillis + "ms waiting for " + name,
+						lastException);
+			}
+			try {
+				Thread.sleep(Math.min(interval, remaining));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TimeoutException("Interrupted while waiting for " + name, e);
+			}
+			interval = Math.min(interval * 2, maxPollMillis);
+		}
+	}
+
+	/**
+	 * Wait until the document is loaded and the number of nodes and size of the
+	 * body stopped changing between two polls
+	 */
+	public void waitForDomStable() {
+		final String[] previous = new String[1];
+		until("DOM stable", new ExpectedCondition<Boolean>() {
+			@Override
+			public Boolean apply(WebDriver driver) {
+				String current = (String) ((JavascriptExecutor) driver).executeScript(DOM_SIGNATURE_SCRIPT);
+				boolean stable = current != null && current.equals(previous[0]);
+				previous[0] = current;
+				return stable;
+			}
+		});
+	}
+
+	/**
+	 * Wait until no CSS animation, CSS transition or jQuery animation is running.
+	 * Animations repeated forever, such as spinners, are not counted: they never
+	 * finish.
+	 */
+	public void waitForAnimationFinished() {
+		until("animation finished", new ExpectedCondition<Boolean>() {
+			@Override
+			public Boolean apply(WebDriver driver) {
+				return (Boolean) ((JavascriptExecutor) driver).executeScript(ANIMATION_FINISHED_SCRIPT);
+			}
+		});
+	}
+
+	/**
+	 * Wait until the element is attached to the document
+	 *
+	 * @param element element to check
+	 */
+	public void waitForElementAttached(final WebElement element) {
+		until("element attached", new ExpectedCondition<Boolean>() {
+			@Override
+			public Boolean apply(WebDriver driver) {
+				return (Boolean) ((JavascriptExecutor) driver).executeScript("return arguments[0].isConnected;",
+						element);
+			}
+		});
+	}
+
+	/**
+	 * @return reports of the waits made by the current thread since the last
+	 *         {@link #clearReports()}
+	 */
+	public static List<WaitReport> getReports() {
+		return Collections.unmodifiableList(reports.get());
+	}
+
+	public static void clearReports() {
+		reports.get().clear();
+	}
+
+	private void report(String name, long start, int polls, boolean satisfied) {
+		WaitReport report = new WaitReport(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), polls,
+				satisfied);
+		List<WaitReport> threadReports = reports.get();
+		if (threadReports.size() < GlobalConstants.WAIT_REPORT_LIMIT) {
+			threadReports.add(report);
+		}
+		log.debug(report);
+	}
+
+	private static final String DOM_SIGNATURE_SCRIPT = "if (document.readyState !== 'complete') { return null; }"
+			+ "return document.getElementsByTagName('*').length + ':' + document.body.innerHTML.length;";
+
+	private static final String ANIMATION_FINISHED_SCRIPT = "var running = 0;"
+			+ "if (document.getAnimations) { var all = document.getAnimations();"
+			+ " for (var i = 0; i < all.length; i++) { var a = all[i];"
+			+ "  if (a.playState === 'running' && !(a.effect && a.effect.getTiming().iterations === Infinity)) {"
+			+ "   running++; } } }"
+			+ "if (window.jQuery) { running += window.jQuery(':animated').length; }"
+			+ "return running === 0;";
+
+	private static final Log log = LogFactory.getLog(SmartWait.class);
+
+	private static final ThreadLocal<List<WaitReport>> reports = new ThreadLocal<List<WaitReport>>() {
+		@Override
+		protected List<WaitReport> initialValue() {
+			return new ArrayList<WaitReport>();
+		}
+	};
+
+	private final WebDriver driver;
+	private long timeoutMillis = TimeUnit.SECONDS.toMillis(GlobalConstants.SHORT_TIMEOUT);
+	private long initialPollMillis = GlobalConstants.POLL_INTERVAL_MILLIS;
+	private long maxPollMillis = GlobalConstants.MAX_POLL_INTERVAL_MILLIS;
+}
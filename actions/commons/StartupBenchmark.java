@@ -0,0 +1,60 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Compares the time to launch a session of each browser profile, for example
+ * the headless profiles used on CI against the windowed ones.
+ *
+ * <pre>
+ * java commons.StartupBenchmark [browsers] [launches per browser]
+ * java commons.StartupBenchmark CHROME,H_CHOME,FIREFOX,H_FIREFOX 5
+ * </pre>
+ *
+ * The first launch of each browser also resolves the driver binary, so it is
+ * reported apart and left out of the statistics.
+ */
+public class StartupBenchmark {
+
+	public static void main(String[] args) {
+		String[] browsers = (args.length > 0 ? args[0] : "CHROME,H_CHOME,FIREFOX,H_FIREFOX").split(",");
+		int launches = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		System.out.println(String.format("%-15s %11s %11s %11s %11s %11s", "Profile", "First (ms)", "Min (ms)",
+				"Median (ms)", "Mean (ms)", "Max (ms)"));
+		for (String browser : browsers) {
+			BrowserProfile profile = BrowserProfile.of(browser.trim());
+			long first = launch(profile);
+			List<Long> times = new ArrayList<Long>();
+			for (int i = 0; i < launches; i++) {
+				times.add(launch(profile));
+			}
+			Collections.sort(times);
+			long total = 0;
+			for (long time : times) {
+				total += time;
+			}
+			System.out.println(String.format("%-15s %11d %11d %11d %11d %11d", profile.getBrowser(), first,
+					times.get(0), times.get(times.size() / 2), total / times.size(), times.get(times.size() - 1)));
+		}
+	}
+
+	/**
+	 * @param profile
+	 * @return milliseconds until the session is ready to navigate
+	 */
+	private static long launch(BrowserProfile profile) {
+		long start = System.nanoTime();
+		WebDriver driver = profile.launch();
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// quit before the next launch so sessions do not compete for the CPU
+		DriverReaper.getReaper().reap(driver);
+		DriverReaper.getReaper().drain(GlobalConstants.DRIVER_QUIT_TIMEOUT);
+		return elapsed;
+	}
+}
@@ -1,21 +1,178 @@
 package commons;
 
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.spi.ErrorCode;
 import org.apache.log4j.spi.LoggingEvent;
+import org.testng.ITestResult;
 import org.testng.Reporter;
 
 /**
  * TestNG requires a call to Reporter.log to insert logging statements into the report
+ *
+ * Events are put in a bounded buffer and written to the report by a single
+ * consumer thread, so the test thread does not wait for the report. The TestNG
+ * result of the test thread is captured with each event and restored by the
+ * consumer, so every line lands in the right test.
+ *
+ * {@link MethodListener} flushes the buffer at the end of each test and of each
+ * suite, before the reporters read the output. The appender keeps running for
+ * the suites that follow in the same JVM; log4j is shut down, which closes this
+ * appender and flushes the AsyncAppender, by a shutdown hook.
+ *
+ * Parameters: BufferSize (default 1024) and OverflowPolicy, what to do when the
+ * buffer is full:
+ * <ul>
+ * <li>BLOCK: wait for free space (default)</li>
+ * <li>DROP_INFO: drop events below WARN, wait for the others</li>
+ * <li>SAMPLE: keep one event out of SampleRate (default 10), drop the others</li>
+ * </ul>
  */
 public class TestNGAppender extends AppenderSkeleton {
 
+	public enum OverflowPolicy {
+		BLOCK, DROP_INFO, SAMPLE
+	}
+
+	@Override
+	public void activateOptions() {
+		super.activateOptions();
+		buffer = new ArrayBlockingQueue<PendingLine>(bufferSize);
+		consumer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		}, "testng-appender");
+		consumer.setDaemon(true);
+		consumer.start();
+		active.add(this);
+		installShutdownHook();
+	}
+
+	/**
+	 * Wait until the events appended so far by every TestNGAppender are in the
+	 * report. Called at the end of each test, so its last lines are attached to it
+	 * before the result is reported.
+	 */
+	public static void flushAll() {
+		for (TestNGAppender appender : active) {
+			appender.flush(FLUSH_TIMEOUT_MILLIS);
+		}
+	}
+
+	/**
+	 * Wait until the events appended so far are in the report and report the
+	 * events dropped since the last call. Called at the end of each suite; the
+	 * appenders stay open for the next suite.
+	 */
+	public static void finishSuite() {
+		for (TestNGAppender appender : active) {
+			appender.flush(FLUSH_TIMEOUT_MILLIS);
+			long dropped = appender.dropped.get();
+			long newlyDropped = dropped - appender.droppedReported.getAndSet(dropped);
+			if (newlyDropped > 0) {
+				// a suite line, not a line of the last test of this thread
+				Reporter.setCurrentTestResult(null);
+				Reporter.log(newlyDropped + " logging events were dropped because the buffer was full");
+			}
+		}
+	}
+
+	/**
+	 * Wait until the events appended before the call are written to the report
+	 *
+	 * @param timeoutMillis
+	 * @return false if they were not all written in time
+	 */
+	public boolean flush(long timeoutMillis) {
+		long target = enqueued.get();
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (flushLock) {
+			flushWaiters++;
+			try {
+				while (written.get() < target) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0 || !consumer.isAlive()) {
+						return false;
+					}
+					try {
+						flushLock.wait(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return false;
+					}
+				}
+			} finally {
+				flushWaiters--;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	protected void append(LoggingEvent event) {
-		Reporter.log(getLayout().format(event)+ "<br />");
+		// thread bound values must be read on the logging thread
+		event.getThreadName();
+		event.getNDC();
+		event.getMDCCopy();
+		event.getRenderedMessage();
+		event.getThrowableStrRep();
+		PendingLine line = new PendingLine(event, Reporter.getCurrentTestResult());
+
+		if (buffer == null) {
+			write(line);
+			return;
+		}
+		if (buffer.offer(line)) {
+			enqueued.incrementAndGet();
+			return;
+		}
+		if (policy == OverflowPolicy.DROP_INFO && !event.getLevel().isGreaterOrEqual(Level.WARN)) {
+			dropped.incrementAndGet();
+		} else if (policy == OverflowPolicy.SAMPLE && overflowed.incrementAndGet() % sampleRate != 0) {
+			dropped.incrementAndGet();
+		} else {
+			try {
+				buffer.put(line);
+				enqueued.incrementAndGet();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				dropped.incrementAndGet();
+			}
+		}
 	}
 
 	@Override
-	public void close() {
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		// closed is the flag of AppenderSkeleton: appending now reports an error
+		closed = true;
+		stopping = true;
+		active.remove(this);
+		if (consumer != null) {
+			consumer.interrupt();
+			try {
+				consumer.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		long newlyDropped = dropped.get() - droppedReported.get();
+		if (newlyDropped > 0) {
+			Reporter.log(newlyDropped + " logging events were dropped because the buffer was full");
+		}
 		Reporter.log("Logging appender is closed");
 	}
 
@@ -32,4 +189,111 @@ public class TestNGAppender extends AppenderSkeleton {
 		Reporter.log(logMessage);
 	}
 
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = Math.max(1, bufferSize);
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public void setOverflowPolicy(String policy) {
+		this.policy = OverflowPolicy.valueOf(policy.trim().toUpperCase());
+	}
+
+	public String getOverflowPolicy() {
+		return policy.name();
+	}
+
+	public void setSampleRate(int sampleRate) {
+		this.sampleRate = Math.max(1, sampleRate);
+	}
+
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * @return number of events dropped because the buffer was full
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	private void consume() {
+		try {
+			while (!stopping) {
+				write(buffer.take());
+			}
+		} catch (InterruptedException e) {
+			// closing, write what is left
+		}
+		PendingLine line;
+		while ((line = buffer.poll()) != null) {
+			write(line);
+		}
+	}
+
+	private void write(PendingLine line) {
+		try {
+			Reporter.setCurrentTestResult(line.result);
+			Reporter.log(getLayout().format(line.event) + "<br />");
+		} catch (RuntimeException e) {
+			// one bad event must not stop the consumer, the producers would wait for it forever
+			dropped.incrementAndGet();
+			errorHandler.error("Could not write a logging event to the report", e, ErrorCode.WRITE_FAILURE);
+		} finally {
+			if (buffer != null) {
+				written.incrementAndGet();
+				if (flushWaiters > 0) {
+					synchronized (flushLock) {
+						flushLock.notifyAll();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Shut log4j down when the JVM exits: the pending events of the asynchronous
+	 * appenders are written and the files are closed
+	 */
+	private static void installShutdownHook() {
+		if (shutdownHookInstalled.compareAndSet(false, true)) {
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					LogManager.shutdown();
+				}
+			}, "log4j-shutdown"));
+		}
+	}
+
+	private static final class PendingLine {
+		PendingLine(LoggingEvent event, ITestResult result) {
+			this.event = event;
+			this.result = result;
+		}
+
+		final LoggingEvent event;
+		final ITestResult result;
+	}
+
+	private static final long FLUSH_TIMEOUT_MILLIS = 5000;
+	private static final Set<TestNGAppender> active = new CopyOnWriteArraySet<TestNGAppender>();
+	private static final AtomicBoolean shutdownHookInstalled = new AtomicBoolean();
+
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong droppedReported = new AtomicLong();
+	private final AtomicLong enqueued = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final Object flushLock = new Object();
+	private volatile int flushWaiters;
+	private final AtomicLong overflowed = new AtomicLong();
+	private int bufferSize = 1024;
+	private int sampleRate = 10;
+	private OverflowPolicy policy = OverflowPolicy.BLOCK;
+	private BlockingQueue<PendingLine> buffer;
+	private Thread consumer;
+	private volatile boolean stopping;
 }
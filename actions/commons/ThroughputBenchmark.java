@@ -0,0 +1,122 @@
+package commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Measures how the number of tests per minute scales with the number of test
+ * threads, each owning its own driver through {@link DriverManager} and sharing
+ * the same {@link BasePage} helpers. A test fills and submits a form of a
+ * generated static page, so the network plays no part.
+ *
+ * <pre>
+ * java commons.ThroughputBenchmark [browser] [tests per thread] [max threads]
+ * java commons.ThroughputBenchmark H_CHOME 20 8
+ * </pre>
+ *
+ * Browsers are launched before the clock starts, so the numbers only cover the
+ * tests. With thread-confined drivers the speedup should stay close to the
+ * number of threads up to the number of cores.
+ */
+public class ThroughputBenchmark {
+
+	public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+		final BrowserProfile profile = BrowserProfile.of(args.length > 0 ? args[0] : "H_CHOME");
+		final int testsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2])
+				: Runtime.getRuntime().availableProcessors();
+
+		final String fixtureUrl = writeFixture().toURI().toString();
+		System.out.println(String.format("%-8s %8s %12s %14s %9s", "Threads", "Tests", "Time (ms)", "Tests/minute",
+				"Speedup"));
+		double singleThreadRate = 0;
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				// launch every browser first, then start all threads at once
+				List<WebDriver> drivers = new ArrayList<WebDriver>();
+				for (int i = 0; i < threads; i++) {
+					drivers.add(profile.launch());
+				}
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+				for (final WebDriver driver : drivers) {
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() {
+							DriverManager.setDriver(driver);
+							try {
+								for (int i = 0; i < testsPerThread; i++) {
+									runTest(fixtureUrl);
+								}
+							} finally {
+								DriverManager.removeDriver();
+							}
+							return null;
+						}
+					});
+				}
+				long start = System.nanoTime();
+				for (Future<Void> result : executor.invokeAll(tasks)) {
+					result.get();
+				}
+				long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+				for (WebDriver driver : drivers) {
+					DriverReaper.getReaper().reap(driver);
+				}
+				DriverReaper.getReaper().drain(GlobalConstants.DRIVER_QUIT_TIMEOUT * 2);
+
+				int tests = threads * testsPerThread;
+				double rate = tests * 60000.0 / elapsedMillis;
+				if (threads == 1) {
+					singleThreadRate = rate;
+				}
+				System.out.println(String.format("%-8d %8d %12d %14.1f %8.2fx", threads, tests, elapsedMillis, rate,
+						rate / singleThreadRate));
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * One test, on the driver of the current thread
+	 */
+	private static void runTest(String fixtureUrl) {
+		WebDriver driver = DriverManager.getDriver();
+		BasePage page = BasePage.getBasePage();
+		page.openPageUrl(driver, fixtureUrl);
+		page.enterToTextboxByID(driver, "firstName", "Peter");
+		page.enterToTextboxByID(driver, "lastName", Thread.currentThread().getName());
+		page.selectDropdownByName(driver, "status", "Enabled");
+		page.clickToRadioButtonByID(driver, "genderMale");
+		page.clickToButtonByText(driver, "Save");
+		page.waitForElementVisible(driver, "//div[@id='saved']");
+	}
+
+	private static File writeFixture() throws IOException {
+		String html = "<html><body>"
+				+ "<form onsubmit='document.getElementById(\"saved\").style.display=\"block\"; return false;'>"
+				+ "<input id='firstName'/><input id='lastName'/>"
+				+ "<select name='status'><option>Enabled</option><option>Disabled</option></select>"
+				+ "<input type='radio' id='genderMale' name='gender'/>"
+				+ "<input type='radio' id='genderFemale' name='gender'/>"
+				+ "<input type='submit' value='Save'/></form>"
+				+ "<div id='saved' style='display:none'>Saved</div></body></html>";
+		File fixture = File.createTempFile("throughput-benchmark", ".html");
+		fixture.deleteOnExit();
+		Files.write(fixture.toPath(), html.getBytes(StandardCharsets.UTF_8));
+		return fixture;
+	}
+}
@@ -0,0 +1,149 @@
+package commons;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Owner of the implicit, page load and script timeouts of a driver, and of the
+ * explicit wait timeouts used with it. Timeouts are only sent to the browser
+ * when they change.
+ *
+ * Explicit waits and negative checks run inside a scope without implicit wait,
+ * so a WebDriverWait never stacks on top of the implicit wait and an absence
+ * check returns within its own budget. Closing a scope restores the previous
+ * value.
+ */
+public class TimeoutManager {
+	private TimeoutManager(WebDriver driver) {
+		this.driver = driver;
+	}
+
+	/**
+	 * @param driver
+	 * @return the timeout manager of the driver
+	 */
+	public static TimeoutManager forDriver(WebDriver driver) {
+		TimeoutManager manager = managers.get(driver);
+		if (manager == null) {
+			TimeoutManager created = new TimeoutManager(driver);
+			manager = managers.putIfAbsent(driver, created);
+			if (manager == null) {
+				manager = created;
+			}
+		}
+		return manager;
+	}
+
+	/**
+	 * Forget the timeouts of a driver that is being quit
+	 *
+	 * @param driver
+	 */
+	static void remove(WebDriver driver) {
+		managers.remove(driver);
+	}
+
+	/**
+	 * Apply the default timeouts from GlobalConstants
+	 */
+	public void applyDefaults() {
+		setImplicitWait(GlobalConstants.IMPLICIT_TIMEOUT);
+		setPageLoadTimeout(GlobalConstants.PAGE_LOAD_TIMEOUT);
+		setScriptTimeout(GlobalConstants.SCRIPT_TIMEOUT);
+		shortTimeout = GlobalConstants.SHORT_TIMEOUT;
+		longTimeout = GlobalConstants.LONG_TIMEOUT;
+	}
+
+	public int getImplicitWait() {
+		return implicitWait;
+	}
+
+	public void setImplicitWait(int second) {
+		if (implicitWait != second) {
+			driver.manage().timeouts().implicitlyWait(second, TimeUnit.SECONDS);
+			implicitWait = second;
+		}
+	}
+
+	public int getPageLoadTimeout() {
+		return pageLoadTimeout;
+	}
+
+	public void setPageLoadTimeout(int second) {
+		if (pageLoadTimeout != second) {
+			driver.manage().timeouts().pageLoadTimeout(second, TimeUnit.SECONDS);
+			pageLoadTimeout = second;
+		}
+	}
+
+	public int getScriptTimeout() {
+		return scriptTimeout;
+	}
+
+	public void setScriptTimeout(int second) {
+		if (scriptTimeout != second) {
+			driver.manage().timeouts().setScriptTimeout(second, TimeUnit.SECONDS);
+			scriptTimeout = second;
+		}
+	}
+
+	/**
+	 * @return timeout of short explicit waits, in seconds
+	 */
+	public int getShortTimeout() {
+		return shortTimeout;
+	}
+
+	/**
+	 * @return timeout of long explicit waits, in seconds
+	 */
+	public int getLongTimeout() {
+		return longTimeout;
+	}
+
+	/**
+	 * Override the implicit wait until the returned scope is closed
+	 *
+	 * @param second implicit wait inside the scope
+	 * @return scope to close, preferably with try-with-resources
+	 */
+	public TimeoutScope overrideImplicitWait(int second) {
+		TimeoutScope scope = new TimeoutScope(implicitWait);
+		setImplicitWait(second);
+		return scope;
+	}
+
+	/**
+	 * Disable the implicit wait until the returned scope is closed
+	 *
+	 * @return scope to close, preferably with try-with-resources
+	 */
+	public TimeoutScope withoutImplicitWait() {
+		return overrideImplicitWait(0);
+	}
+
+	public class TimeoutScope implements AutoCloseable {
+		private TimeoutScope(int previousImplicitWait) {
+			this.previousImplicitWait = previousImplicitWait;
+		}
+
+		@Override
+		public void close() {
+			setImplicitWait(previousImplicitWait);
+		}
+
+		private final int previousImplicitWait;
+	}
+
+	private static final Map<WebDriver, TimeoutManager> managers = new ConcurrentHashMap<WebDriver, TimeoutManager>();
+
+	private final WebDriver driver;
+	private int implicitWait;
+	private int pageLoadTimeout = -1;
+	private int scriptTimeout = -1;
+	private int shortTimeout = GlobalConstants.SHORT_TIMEOUT;
+	private int longTimeout = GlobalConstants.LONG_TIMEOUT;
+}
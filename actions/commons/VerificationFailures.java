@@ -1,35 +1,118 @@
 package commons;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
 
 import org.testng.ITestResult;
 
-public class VerificationFailures extends HashMap<ITestResult, List<Throwable>> {
+/**
+ * Soft assertion failures of the running tests, kept per test result until
+ * MethodListener consumes them. Tests running in parallel can add failures at
+ * the same time.
+ *
+ * The store is still a Map of the failures by test result, backed by a
+ * concurrent map. A list read through the Map view is the live list of the
+ * test: synchronize on it to iterate while failures are added.
+ */
+public class VerificationFailures extends AbstractMap<ITestResult, List<Throwable>> {
 	private VerificationFailures() {
-		super();
 	}
 
-	// Singleto Pattern
+	// Singleton Pattern
 	public static VerificationFailures getFailures() {
-		if (failures == null) {
-			failures = new VerificationFailures();
-		}
-		return failures;
+		return Holder.FAILURES;
 	}
 
+	/**
+	 * @param result
+	 * @return a copy of the failures recorded for the test, empty if there is none
+	 */
 	public List<Throwable> getFailuresForTest(ITestResult result) {
-		List<Throwable> exceptions = get(result);
-		return exceptions == null ? new ArrayList<Throwable>() : exceptions;
+		List<Throwable> exceptions = failures.get(result);
+		if (exceptions == null) {
+			return new ArrayList<Throwable>();
+		}
+		synchronized (exceptions) {
+			return new ArrayList<Throwable>(exceptions);
+		}
+	}
+
+	public void addFailureForTest(ITestResult result, final Throwable throwable) {
+		failures.compute(result, new BiFunction<ITestResult, List<Throwable>, List<Throwable>>() {
+			@Override
+			public List<Throwable> apply(ITestResult key, List<Throwable> exceptions) {
+				List<Throwable> updated = exceptions == null ? new ArrayList<Throwable>() : exceptions;
+				synchronized (updated) {
+					updated.add(throwable);
+				}
+				return updated;
+			}
+		});
+	}
+
+	/**
+	 * Take the failures of a finished test out of the store
+	 *
+	 * @param result
+	 * @return the failures recorded for the test, in the order they were added,
+	 *         empty if there is none
+	 */
+	public List<Throwable> removeFailuresForTest(ITestResult result) {
+		List<Throwable> exceptions = failures.remove(result);
+		if (exceptions == null) {
+			return new ArrayList<Throwable>();
+		}
+		synchronized (exceptions) {
+			return new ArrayList<Throwable>(exceptions);
+		}
+	}
+
+	/**
+	 * @return number of tests with failures not consumed yet
+	 */
+	@Override
+	public int size() {
+		return failures.size();
+	}
+
+	@Override
+	public List<Throwable> get(Object result) {
+		return failures.get(result);
+	}
+
+	@Override
+	public boolean containsKey(Object result) {
+		return failures.containsKey(result);
+	}
+
+	@Override
+	public List<Throwable> put(ITestResult result, List<Throwable> exceptions) {
+		return failures.put(result, exceptions);
+	}
+
+	@Override
+	public List<Throwable> remove(Object result) {
+		return failures.remove(result);
+	}
+
+	@Override
+	public void clear() {
+		failures.clear();
+	}
+
+	@Override
+	public Set<Entry<ITestResult, List<Throwable>>> entrySet() {
+		return failures.entrySet();
 	}
 
-	public void addFailureForTest(ITestResult result, Throwable throwable) {
-		List<Throwable> exceptions = getFailuresForTest(result);
-		exceptions.add(throwable);
-		put(result, exceptions);
+	private static class Holder {
+		static final VerificationFailures FAILURES = new VerificationFailures();
 	}
 
-	private static final long serialVersionUID = 1L;
-	private static VerificationFailures failures;
+	private final ConcurrentMap<ITestResult, List<Throwable>> failures = new ConcurrentHashMap<ITestResult, List<Throwable>>();
 }
@@ -0,0 +1,144 @@
+package commons;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import commons.TimeoutManager.TimeoutScope;
+
+/**
+ * Reuses one configured WebDriverWait per driver and timeout profile instead of
+ * allocating a wait, clock and sleeper on every call. Waits are confined to the
+ * thread that owns the driver, like the driver itself.
+ */
+public final class WaitFactory {
+	private WaitFactory() {
+	}
+
+	public enum WaitProfile {
+		SHORT, LONG
+	}
+
+	/**
+	 * @param driver
+	 * @param profile
+	 * @return the wait of the driver for the profile, created on first use
+	 */
+	public static WebDriverWait getWait(WebDriver driver, WaitProfile profile) {
+		long timeout = getTimeout(driver, profile);
+		Map<WebDriver, CachedWait[]> threadWaits = waits.get();
+		CachedWait[] driverWaits = threadWaits.get(driver);
+		if (driverWaits == null) {
+			driverWaits = new CachedWait[WaitProfile.values().length];
+			threadWaits.put(driver, driverWaits);
+		}
+		CachedWait cached = driverWaits[profile.ordinal()];
+		if (cached == null || cached.timeout != timeout) {
+			allocations.increment();
+			cached = new CachedWait(new WebDriverWait(driver, timeout), timeout);
+			driverWaits[profile.ordinal()] = cached;
+		} else {
+			reuses.increment();
+		}
+		return cached.wait;
+	}
+
+	/**
+	 * Wait for a condition that looks up elements. The implicit wait is disabled
+	 * for the duration of the wait so the two don't stack.
+	 *
+	 * @param driver
+	 * @param profile   timeout profile
+	 * @param condition condition to wait for
+	 * @return the value of the condition
+	 */
+	@SuppressWarnings("try")
+	public static <T> T until(WebDriver driver, WaitProfile profile, ExpectedCondition<T> condition) {
+		try (TimeoutScope ignored = TimeoutManager.forDriver(driver).withoutImplicitWait()) {
+			return untilBrowserState(driver, profile, condition);
+		}
+	}
+
+	/**
+	 * Wait for a condition that does not look up elements, such as an alert or a
+	 * script result. The implicit wait is left untouched.
+	 *
+	 * @param driver
+	 * @param profile   timeout profile
+	 * @param condition condition to wait for
+	 * @return the value of the condition
+	 */
+	public static <T> T untilBrowserState(WebDriver driver, WaitProfile profile, ExpectedCondition<T> condition) {
+		try {
+			T value = getWait(driver, profile).until(condition);
+			satisfied.increment();
+			return value;
+		} catch (TimeoutException e) {
+			timedOut.increment();
+			throw e;
+		}
+	}
+
+	/**
+	 * Drop the waits the current thread keeps for a driver it gives back. The
+	 * waits hold the driver, so they must not outlive the lease.
+	 *
+	 * @param driver
+	 */
+	static void release(WebDriver driver) {
+		waits.get().remove(driver);
+	}
+
+	public static long getAllocationCount() {
+		return allocations.sum();
+	}
+
+	public static long getReuseCount() {
+		return reuses.sum();
+	}
+
+	public static long getSatisfiedCount() {
+		return satisfied.sum();
+	}
+
+	public static long getTimedOutCount() {
+		return timedOut.sum();
+	}
+
+	public static String getStatistics() {
+		return "allocations=" + getAllocationCount() + ", reuses=" + getReuseCount() + ", satisfied="
+				+ getSatisfiedCount() + ", timedOut=" + getTimedOutCount();
+	}
+
+	private static long getTimeout(WebDriver driver, WaitProfile profile) {
+		TimeoutManager timeouts = TimeoutManager.forDriver(driver);
+		return profile == WaitProfile.SHORT ? timeouts.getShortTimeout() : timeouts.getLongTimeout();
+	}
+
+	private static final class CachedWait {
+		CachedWait(WebDriverWait wait, long timeout) {
+			this.wait = wait;
+			this.timeout = timeout;
+		}
+
+		final WebDriverWait wait;
+		final long timeout;
+	}
+
+	private static final ThreadLocal<Map<WebDriver, CachedWait[]>> waits = new ThreadLocal<Map<WebDriver, CachedWait[]>>() {
+		@Override
+		protected Map<WebDriver, CachedWait[]> initialValue() {
+			return new IdentityHashMap<WebDriver, CachedWait[]>();
+		}
+	};
+
+	private static final LongAdder allocations = new LongAdder();
+	private static final LongAdder reuses = new LongAdder();
+	private static final LongAdder satisfied = new LongAdder();
+	private static final LongAdder timedOut = new LongAdder();
+}
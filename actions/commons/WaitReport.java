@@ -0,0 +1,43 @@
+package commons;
+
+/**
+ * How long a single {@link SmartWait} call actually took
+ */
+public final class WaitReport {
+
+	WaitReport(String name, long elapsedMillis, int polls, boolean satisfied) {
+		this.name = name;
+		this.elapsedMillis = elapsedMillis;
+		this.polls = polls;
+		this.satisfied = satisfied;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public int getPolls() {
+		return polls;
+	}
+
+	/**
+	 * @return false if the wait timed out
+	 */
+	public boolean isSatisfied() {
+		return satisfied;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + elapsedMillis + "ms, " + polls + " polls" + (satisfied ? "" : ", timed out");
+	}
+
+	private final String name;
+	private final long elapsedMillis;
+	private final int polls;
+	private final boolean satisfied;
+}
@@ -0,0 +1,251 @@
+package commons;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * Title and URL of the windows of a driver, keyed by handle. A window is probed
+ * once, with a single script, when it first shows up in getWindowHandles.
+ * Finding a window by title is then a map lookup followed by one switch, instead
+ * of switching into every window to read its title.
+ *
+ * Titles can change after a window navigates, so a window found in the
+ * registry is checked after the switch, and all windows are probed again when
+ * the title is not found.
+ */
+public class WindowRegistry {
+	private WindowRegistry(WebDriver driver) {
+		this.driver = driver;
+	}
+
+	/**
+	 * @param driver
+	 * @return the window registry of the driver
+	 */
+	public static WindowRegistry forDriver(WebDriver driver) {
+		WindowRegistry registry = registries.get(driver);
+		if (registry == null) {
+			WindowRegistry created = new WindowRegistry(driver);
+			registry = registries.putIfAbsent(driver, created);
+			if (registry == null) {
+				registry = created;
+			}
+		}
+		return registry;
+	}
+
+	/**
+	 * Forget the windows of a driver that is given back or quit
+	 *
+	 * @param driver
+	 */
+	static void remove(WebDriver driver) {
+		if (driver != null) {
+			registries.remove(driver);
+		}
+	}
+
+	/**
+	 * Switch to the window with the given title. When no window has this title,
+	 * the focus goes back to the current window; if the current window was
+	 * closed, such as a child window closed before switching back to its parent,
+	 * the focus stays on one of the open windows.
+	 *
+	 * @param title
+	 * @return false if no window has this title
+	 */
+	public boolean switchToTitle(String title) {
+		String original = getCurrentHandle();
+		sync(original);
+		String handle = findHandle(title);
+		if (handle != null && switchAndCheck(handle, title)) {
+			return true;
+		}
+
+		// titles changed since they were probed
+		reprobe();
+		handle = findHandle(title);
+		if (handle != null) {
+			driver.switchTo().window(handle);
+			return true;
+		}
+		if (original != null) {
+			driver.switchTo().window(original);
+		}
+		return false;
+	}
+
+	/**
+	 * Close every window but one, then switch to it
+	 *
+	 * @param keepHandle handle of the window to keep
+	 */
+	public void closeAllExcept(String keepHandle) {
+		for (String handle : driver.getWindowHandles()) {
+			if (!handle.equals(keepHandle)) {
+				driver.switchTo().window(handle);
+				driver.close();
+				forget(handle);
+			}
+		}
+		driver.switchTo().window(keepHandle);
+	}
+
+	/**
+	 * Wait until a window that is not in knownHandles opens, with the backoff
+	 * polling of {@link SmartWait}
+	 *
+	 * @param knownHandles handles read before the action that opens the window
+	 * @return handle of the new window
+	 */
+	public String waitForNewWindow(final Set<String> knownHandles) {
+		return new SmartWait(driver).until("new window", new ExpectedCondition<String>() {
+			@Override
+			public String apply(WebDriver driver) {
+				for (String handle : driver.getWindowHandles()) {
+					if (!knownHandles.contains(handle)) {
+						return handle;
+					}
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @param handle
+	 * @return the title of the window when it was last probed, or null if it was
+	 *         never probed
+	 */
+	public String getTitle(String handle) {
+		WindowInfo window = windows.get(handle);
+		return window == null ? null : window.title;
+	}
+
+	/**
+	 * @param handle
+	 * @return the URL of the window when it was last probed, or null if it was
+	 *         never probed
+	 */
+	public String getUrl(String handle) {
+		WindowInfo window = windows.get(handle);
+		return window == null ? null : window.url;
+	}
+
+	/**
+	 * Forget closed windows and probe the new ones. The focus is left on the last
+	 * window probed: the caller switches to the window it looks for next.
+	 *
+	 * @param current handle of the window that has the focus, or null if it was
+	 *                closed
+	 */
+	private void sync(String current) {
+		Set<String> handles = driver.getWindowHandles();
+		for (String handle : new HashSet<String>(windows.keySet())) {
+			if (!handles.contains(handle)) {
+				forget(handle);
+			}
+		}
+		Set<String> opened = new HashSet<String>(handles);
+		opened.removeAll(windows.keySet());
+		String focused = current;
+		for (String handle : opened) {
+			if (!handle.equals(focused)) {
+				driver.switchTo().window(handle);
+				focused = handle;
+			}
+			probe(handle);
+		}
+	}
+
+	/**
+	 * @return handle of the window that has the focus, or null if that window was
+	 *         closed
+	 */
+	private String getCurrentHandle() {
+		try {
+			return driver.getWindowHandle();
+		} catch (NoSuchWindowException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Probe every window again, leaving the focus on the last one
+	 */
+	private void reprobe() {
+		windows.clear();
+		handlesByTitle.clear();
+		for (String handle : driver.getWindowHandles()) {
+			driver.switchTo().window(handle);
+			probe(handle);
+		}
+	}
+
+	private boolean switchAndCheck(String handle, String title) {
+		try {
+			driver.switchTo().window(handle);
+		} catch (NoSuchWindowException e) {
+			forget(handle);
+			return false;
+		}
+		return title.equals(probe(handle).title);
+	}
+
+	@SuppressWarnings("unchecked")
+	private WindowInfo probe(String handle) {
+		Map<String, Object> page = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(PROBE_SCRIPT);
+		WindowInfo window = new WindowInfo((String) page.get("title"), (String) page.get("url"));
+		forget(handle);
+		windows.put(handle, window);
+		if (!handlesByTitle.containsKey(window.title)) {
+			handlesByTitle.put(window.title, handle);
+		}
+		return window;
+	}
+
+	private void forget(String handle) {
+		WindowInfo window = windows.remove(handle);
+		if (window != null && handle.equals(handlesByTitle.get(window.title))) {
+			handlesByTitle.remove(window.title);
+			// another window may have the same title
+			for (Map.Entry<String, WindowInfo> other : windows.entrySet()) {
+				if (other.getValue().title.equals(window.title)) {
+					handlesByTitle.put(window.title, other.getKey());
+					break;
+				}
+			}
+		}
+	}
+
+	private String findHandle(String title) {
+		return handlesByTitle.get(title);
+	}
+
+	private static final class WindowInfo {
+		WindowInfo(String title, String url) {
+			this.title = title;
+			this.url = url;
+		}
+
+		final String title;
+		final String url;
+	}
+
+	private static final String PROBE_SCRIPT = "return {title: document.title, url: window.location.href};";
+
+	private static final Map<WebDriver, WindowRegistry> registries = new ConcurrentHashMap<WebDriver, WindowRegistry>();
+
+	private final WebDriver driver;
+	private final Map<String, WindowInfo> windows = new LinkedHashMap<String, WindowInfo>();
+	private final Map<String, String> handlesByTitle = new HashMap<String, String>();
+}
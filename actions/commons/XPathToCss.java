@@ -0,0 +1,233 @@
+package commons;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.By;
+
+/**
+ * Rewrites simple XPath locators into the equivalent CSS selector, which
+ * browsers match faster, especially for //*[...] patterns. Supported:
+ * <ul>
+ * <li>steps separated by // (descendant) or / (child), starting with //</li>
+ * <li>element names and *</li>
+ * <li>predicates made of @attr, @attr='value', contains(@attr, 'value') and
+ * starts-with(@attr, 'value'), joined with and</li>
+ * </ul>
+ * Anything else (text(), positions, or, axes, unions, ...) has no exact CSS
+ * equivalent, and the locator stays an XPath.
+ *
+ * The selector is only equivalent when searching from the driver: under an
+ * element, //x still searches the whole page while a CSS selector only searches
+ * inside the element.
+ */
+public final class XPathToCss {
+	private XPathToCss() {
+	}
+
+	/**
+	 * @param xpath
+	 * @return a By locating the same elements, with a CSS selector when the XPath
+	 *         can be rewritten
+	 */
+	public static By toBy(String xpath) {
+		if (GlobalConstants.XPATH_TO_CSS_ENABLED) {
+			String css = translate(xpath);
+			if (css != null) {
+				translated.incrementAndGet();
+				return By.cssSelector(css);
+			}
+			fallbacks.incrementAndGet();
+		}
+		return By.xpath(xpath);
+	}
+
+	/**
+	 * @param xpath
+	 * @return the equivalent CSS selector, or null if there is none
+	 */
+	public static String translate(String xpath) {
+		try {
+			return new Parser(xpath).parsePath();
+		} catch (UnsupportedXPathException e) {
+			return null;
+		}
+	}
+
+	public static long getTranslatedCount() {
+		return translated.get();
+	}
+
+	public static long getFallbackCount() {
+		return fallbacks.get();
+	}
+
+	private static final class Parser {
+		Parser(String xpath) {
+			this.xpath = xpath;
+		}
+
+		String parsePath() {
+			skipSpaces();
+			if (!xpath.startsWith("//", position)) {
+				throw new UnsupportedXPathException();
+			}
+			StringBuilder css = new StringBuilder();
+			position += 2;
+			parseStep(css);
+			while (position < xpath.length()) {
+				if (xpath.startsWith("//", position)) {
+					position += 2;
+					css.append(' ');
+				} else if (xpath.charAt(position) == '/') {
+					position++;
+					css.append(" > ");
+				} else {
+					throw new UnsupportedXPathException();
+				}
+				parseStep(css);
+			}
+			return css.toString();
+		}
+
+		private void parseStep(StringBuilder css) {
+			if (peek() == '*') {
+				position++;
+				css.append('*');
+			} else {
+				String name = parseName();
+				// an axis (following-sibling::) or a function (text())
+				if (peek() == ':' || peek() == '(') {
+					throw new UnsupportedXPathException();
+				}
+				css.append(name);
+			}
+			while (peek() == '[') {
+				position++;
+				parseCondition(css);
+				skipSpaces();
+				while (xpath.startsWith("and", position)) {
+					position += 3;
+					parseCondition(css);
+					skipSpaces();
+				}
+				expect(']');
+			}
+		}
+
+		private void parseCondition(StringBuilder css) {
+			skipSpaces();
+			if (peek() == '@') {
+				position++;
+				String attribute = parseName();
+				skipSpaces();
+				if (peek() == '=') {
+					position++;
+					appendAttribute(css, attribute, "=", parseLiteral());
+				} else {
+					css.append('[').append(attribute).append(']');
+				}
+				return;
+			}
+			String function = parseName();
+			String operator;
+			if (function.equals("contains")) {
+				operator = "*=";
+			} else if (function.equals("starts-with")) {
+				operator = "^=";
+			} else {
+				throw new UnsupportedXPathException();
+			}
+			expect('(');
+			skipSpaces();
+			expect('@');
+			String attribute = parseName();
+			expect(',');
+			String value = parseLiteral();
+			expect(')');
+			// an empty value matches every element in XPath but none in CSS
+			if (value.isEmpty()) {
+				throw new UnsupportedXPathException();
+			}
+			appendAttribute(css, attribute, operator, value);
+		}
+
+		private void appendAttribute(StringBuilder css, String attribute, String operator, String value) {
+			css.append('[').append(attribute).append(operator).append('"');
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '"' || c == '\\') {
+					css.append('\\').append(c);
+				} else if (c < ' ') {
+					css.append('\\').append(Integer.toHexString(c)).append(' ');
+				} else {
+					css.append(c);
+				}
+			}
+			css.append("\"]");
+		}
+
+		private String parseName() {
+			skipSpaces();
+			int start = position;
+			while (position < xpath.length()) {
+				char c = xpath.charAt(position);
+				if (Character.isLetterOrDigit(c) || c == '-' || c == '_') {
+					position++;
+				} else {
+					break;
+				}
+			}
+			if (position == start || !Character.isLetter(xpath.charAt(start))) {
+				throw new UnsupportedXPathException();
+			}
+			return xpath.substring(start, position);
+		}
+
+		private String parseLiteral() {
+			skipSpaces();
+			char quote = peek();
+			if (quote != '\'' && quote != '"') {
+				throw new UnsupportedXPathException();
+			}
+			int end = xpath.indexOf(quote, position + 1);
+			if (end < 0) {
+				throw new UnsupportedXPathException();
+			}
+			String value = xpath.substring(position + 1, end);
+			position = end + 1;
+			return value;
+		}
+
+		private void expect(char c) {
+			skipSpaces();
+			if (peek() != c) {
+				throw new UnsupportedXPathException();
+			}
+			position++;
+		}
+
+		private char peek() {
+			return position < xpath.length() ? xpath.charAt(position) : 0;
+		}
+
+		private void skipSpaces() {
+			while (position < xpath.length() && Character.isWhitespace(xpath.charAt(position))) {
+				position++;
+			}
+		}
+
+		private final String xpath;
+		private int position;
+	}
+
+	private static final class UnsupportedXPathException extends RuntimeException {
+		UnsupportedXPathException() {
+			super(null, null, false, false);
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static final AtomicLong translated = new AtomicLong();
+	private static final AtomicLong fallbacks = new AtomicLong();
+}
@@ -0,0 +1,21 @@
+package pageUIs.commons;
+
+import commons.Locator0;
+
+/**
+ * Typed locators of {@link BasePageUI}
+ *
+ * Generated by commons.LocatorGenerator, do not edit.
+ */
+public final class BasePageLocators {
+	private BasePageLocators() {
+	}
+
+	public static final Locator0 DYNAMIC_TEXTBOX_BY_ID = Locator0.of(BasePageUI.DYNAMIC_TEXTBOX_BY_ID);
+
+	public static final Locator0 DYNAMIC_RADIO_BY_ID = Locator0.of(BasePageUI.DYNAMIC_RADIO_BY_ID);
+
+	public static final Locator0 DYNAMIC_BUTTON_BY_TEXT = Locator0.of(BasePageUI.DYNAMIC_BUTTON_BY_TEXT);
+
+	public static final Locator0 DYNAMIC_DROPDOWN_BY_NAME = Locator0.of(BasePageUI.DYNAMIC_DROPDOWN_BY_NAME);
+}
@@ -0,0 +1,76 @@
+package commons;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import commons.ActionMetrics.Timer;
+
+@SuppressWarnings("try")
+public class ActionMetricsTest {
+
+	@BeforeMethod
+	public void clearMetrics() {
+		ActionMetrics.clear();
+	}
+
+	@Test
+	public void nestedActionIsRecorded() {
+		try (Timer ignored = ActionMetrics.time("enterToTextboxByID", LOCATOR)) {
+			ActionMetrics.time("waitForElementVisible", LOCATOR).close();
+			ActionMetrics.time("getElement", LOCATOR).close();
+		}
+
+		Assert.assertEquals(ActionMetrics.getActionStats().size(), 3);
+		Assert.assertEquals(ActionMetrics.getLocatorStats().size(), 3);
+		for (ActionMetrics.Stat stat : ActionMetrics.getLocatorStats()) {
+			Assert.assertEquals(stat.getCount(), 1, stat.getAction());
+			Assert.assertEquals(stat.getLocator(), LOCATOR);
+		}
+	}
+
+	@Test
+	public void selfTimeExcludesNestedActions() throws InterruptedException {
+		try (Timer ignored = ActionMetrics.time("clickToButtonByText", LOCATOR)) {
+			sleepInAction("waitForElementClickable", 50);
+		}
+
+		ActionMetrics.Stat outer = getActionStat("clickToButtonByText");
+		ActionMetrics.Stat inner = getActionStat("waitForElementClickable");
+		Assert.assertTrue(inner.getTotalMicros() >= 50000, inner.toString());
+		Assert.assertEquals(inner.getSelfMicros(), inner.getTotalMicros());
+		Assert.assertTrue(outer.getTotalMicros() >= inner.getTotalMicros(), outer.toString());
+		Assert.assertTrue(outer.getSelfMicros() < 50000, outer.toString());
+	}
+
+	@Test
+	public void actionAfterANestedOneIsRecorded() {
+		for (int i = 0; i < 3; i++) {
+			try (Timer ignored = ActionMetrics.time("clickToElement", LOCATOR)) {
+				ActionMetrics.time("getElement", LOCATOR).close();
+			}
+		}
+		ActionMetrics.time("getElement", LOCATOR).close();
+
+		Assert.assertEquals(getActionStat("clickToElement").getCount(), 3);
+		Assert.assertEquals(getActionStat("getElement").getCount(), 4);
+		Assert.assertEquals(ActionMetrics.getActionStats().size(), 2);
+	}
+
+	private static void sleepInAction(String action, long millis) throws InterruptedException {
+		try (Timer ignored = ActionMetrics.time(action, LOCATOR)) {
+			Thread.sleep(millis);
+		}
+	}
+
+	private static ActionMetrics.Stat getActionStat(String action) {
+		for (ActionMetrics.Stat stat : ActionMetrics.getActionStats()) {
+			if (stat.getAction().equals(action)) {
+				return stat;
+			}
+		}
+		throw new AssertionError(action + " was not recorded");
+	}
+
+	private static final String LOCATOR = "//button[text()='Save']";
+}
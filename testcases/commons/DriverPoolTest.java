@@ -0,0 +1,185 @@
+package commons;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class DriverPoolTest {
+
+	/**
+	 * LEASERS threads lease and release sessions while PREWARMERS threads keep
+	 * prewarming the same profile: the browsers alive at any time never exceed
+	 * the size of the pool
+	 */
+	@Test
+	public void liveSessionsNeverExceedThePoolSize() throws Exception {
+		final StubPool pool = new StubPool();
+		final BrowserProfile profile = BrowserProfile.of("chrome");
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(LEASERS + PREWARMERS);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int t = 0; t < LEASERS + PREWARMERS; t++) {
+				final boolean prewarmer = t < PREWARMERS;
+				results.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						start.await();
+						for (int i = 0; i < ROUNDS; i++) {
+							if (prewarmer) {
+								pool.prewarm(profile, APP_URL);
+							} else {
+								WebDriver driver = pool.lease(profile, APP_URL);
+								Thread.sleep(1);
+								if (!pool.release(driver)) {
+									pool.quit(driver);
+								}
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertTrue(pool.maxAlive.get() <= POOL_SIZE, "max alive " + pool.maxAlive.get());
+		Assert.assertTrue(pool.launched.get() >= POOL_SIZE, "launched " + pool.launched.get());
+		Assert.assertEquals(pool.getLiveCount(profile), pool.alive.get());
+		pool.shutdown();
+		Assert.assertEquals(pool.alive.get(), 0);
+		Assert.assertEquals(pool.getLiveCount(profile), 0);
+	}
+
+	@Test
+	public void prewarmStopsAtThePoolSize() {
+		StubPool pool = new StubPool();
+		BrowserProfile profile = BrowserProfile.of("chrome");
+		for (int i = 0; i < POOL_SIZE; i++) {
+			Assert.assertTrue(pool.prewarm(profile, APP_URL));
+		}
+		Assert.assertFalse(pool.prewarm(profile, APP_URL));
+
+		WebDriver driver = pool.lease(profile, APP_URL);
+		Assert.assertEquals(pool.getHitCount(), 1);
+		Assert.assertFalse(pool.prewarm(profile, APP_URL), "a leased session still counts");
+		Assert.assertTrue(pool.release(driver));
+		Assert.assertEquals(pool.alive.get(), POOL_SIZE);
+		pool.shutdown();
+		Assert.assertEquals(pool.alive.get(), 0);
+	}
+
+	@Test
+	public void failedLaunchGivesItsPlaceBack() {
+		StubPool pool = new StubPool();
+		BrowserProfile profile = BrowserProfile.of("chrome");
+		pool.failLaunches = true;
+		for (int i = 0; i < POOL_SIZE + 1; i++) {
+			try {
+				pool.lease(profile, APP_URL);
+				Assert.fail("the launch must fail");
+			} catch (RuntimeException e) {
+				Assert.assertEquals(e.getMessage(), "browser did not start");
+			}
+		}
+		Assert.assertEquals(pool.getLiveCount(profile), 0);
+		pool.failLaunches = false;
+		Assert.assertNotNull(pool.lease(profile, APP_URL));
+		Assert.assertEquals(pool.getLiveCount(profile), 1);
+	}
+
+	/**
+	 * Pool of stub drivers, which counts the browsers alive
+	 */
+	private static class StubPool extends DriverPool {
+		StubPool() {
+			super(POOL_SIZE);
+		}
+
+		@Override
+		WebDriver launch(BrowserProfile profile) {
+			if (failLaunches) {
+				throw new RuntimeException("browser did not start");
+			}
+			int now = alive.incrementAndGet();
+			int max;
+			while (now > (max = maxAlive.get()) && !maxAlive.compareAndSet(max, now)) {
+				// retry until the larger value is stored
+			}
+			launched.incrementAndGet();
+			Thread.yield();
+			return newDriver();
+		}
+
+		@Override
+		void quit(WebDriver driver) {
+			alive.decrementAndGet();
+		}
+
+		final AtomicInteger alive = new AtomicInteger();
+		final AtomicInteger maxAlive = new AtomicInteger();
+		final AtomicInteger launched = new AtomicInteger();
+		volatile boolean failLaunches;
+	}
+
+	/**
+	 * @return a driver that accepts every command: interfaces are answered by
+	 *         stubs, the window handles by a single window, the rest by defaults
+	 */
+	private static WebDriver newDriver() {
+		return (WebDriver) newStub(new Class<?>[] { WebDriver.class, JavascriptExecutor.class });
+	}
+
+	private static Object newStub(Class<?>[] interfaces) {
+		return Proxy.newProxyInstance(DriverPoolTest.class.getClassLoader(), interfaces, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				Class<?> type = method.getReturnType();
+				if (name.equals("equals")) {
+					return proxy == args[0];
+				} else if (name.equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				} else if (name.equals("toString")) {
+					return "stub driver";
+				} else if (name.equals("getWindowHandles")) {
+					return Collections.singleton("window");
+				} else if (type == String.class) {
+					return "window";
+				} else if (type == boolean.class) {
+					return false;
+				} else if (type == int.class || type == long.class) {
+					return 0;
+				} else if (type.isInterface() && !type.getName().startsWith("java.")) {
+					return newStub(new Class<?>[] { type });
+				}
+				return null;
+			}
+		});
+	}
+
+	private static final int POOL_SIZE = 2;
+	private static final int LEASERS = 6;
+	private static final int PREWARMERS = 2;
+	private static final int ROUNDS = 100;
+	private static final String APP_URL = "http://localhost/";
+}
@@ -0,0 +1,245 @@
+package commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.Cookie;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs {@link FixtureClient} and {@link EmployeeFixture} against a stub of the
+ * employee API of OrangeHRM 5 on 127.0.0.1
+ */
+public class FixtureClientTest {
+
+	@BeforeClass
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new StubHandler());
+		server.start();
+		baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@BeforeMethod
+	public void resetServer() {
+		requests.clear();
+		sessions.set(1);
+		empNumbers.set(42);
+	}
+
+	@Test
+	public void createEmployeeReturnsTheEmpNumber() {
+		FixtureClient client = newClient();
+		String empNumber = new EmployeeFixture(client).createEmployee("Linda", "Jane", "Anderson", "0042");
+
+		Assert.assertEquals(empNumber, "42");
+		Request post = findRequest("POST", EMPLOYEES_PATH);
+		Assert.assertTrue(post.contentType.startsWith("application/json"), post.contentType);
+		Assert.assertEquals(post.json.get("firstName").getAsString(), "Linda");
+		Assert.assertEquals(post.json.get("middleName").getAsString(), "Jane");
+		Assert.assertEquals(post.json.get("lastName").getAsString(), "Anderson");
+		Assert.assertEquals(post.json.get("employeeId").getAsString(), "0042");
+		Assert.assertFalse(client.getCookies().containsKey("other"), "cookie of another domain stored");
+	}
+
+	@Test
+	public void sessionCookieSetByTheServerIsSentBack() {
+		FixtureClient client = newClient();
+		EmployeeFixture fixture = new EmployeeFixture(client);
+		Assert.assertEquals(fixture.createEmployee("Linda", "", "Anderson", "0042"), "42");
+		// the server renewed the session with the first response
+		Assert.assertEquals(fixture.createEmployee("Odis", "", "Adalwin", "0043"), "43");
+
+		Assert.assertEquals(requests.get(1).cookie, "orangehrm=session2");
+		Assert.assertEquals(client.getCookies().get("orangehrm"), "session3");
+	}
+
+	@Test
+	public void rejectedEmployeeFails() {
+		try {
+			new EmployeeFixture(newClient()).createEmployee("", "", "Anderson", "0042");
+			Assert.fail("an employee without first name must not be created");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("status 422"), e.getMessage());
+		}
+	}
+
+	@Test
+	public void withoutSessionTheEmployeeIsNotCreated() {
+		try {
+			new EmployeeFixture(new FixtureClient(baseUrl, null)).createEmployee("Linda", "", "Anderson", "0042");
+			Assert.fail("the employee must not be created without a session");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("logged in"), e.getMessage());
+		}
+	}
+
+	@Test
+	public void cookiesOfOtherDomainsAreLeftOut() {
+		Set<Cookie> cookies = new HashSet<Cookie>();
+		cookies.add(new Cookie("orangehrm", "session1", "127.0.0.1", "/", null));
+		cookies.add(new Cookie("tracker", "abc", ".example.com", "/", null));
+		cookies.add(new Cookie("hostOnly", "1", null, "/", null));
+
+		Map<String, String> kept = new FixtureClient(baseUrl, cookies).getCookies();
+		Assert.assertEquals(kept.keySet(), new HashSet<String>(Arrays.asList("orangehrm", "hostOnly")));
+	}
+
+	@Test
+	public void redirectToAnotherHostIsNotFollowed() {
+		FixtureClient client = newClient();
+		FixtureClient.Response response = client.get("/leak");
+
+		Assert.assertEquals(response.getStatus(), 302);
+		Assert.assertNull(findRequest("GET", "/capture"), "the redirect left the application");
+		Assert.assertFalse(client.getCookies().containsKey("foreign"));
+	}
+
+	@Test
+	public void csrfTokenOfTheLoginFormIsExtracted() {
+		FixtureClient.Response login = new FixtureClient(baseUrl, null).get("/web/index.php/pim/viewEmployeeList");
+
+		Assert.assertTrue(login.getUrl().endsWith(LOGIN_PATH), login.getUrl());
+		Assert.assertEquals(FixtureClient.extractCsrfToken(login.getBody(), "_token"), CSRF_TOKEN);
+	}
+
+	@Test
+	public void csrfTokenIsFoundInAnyAttributeOrder() {
+		String html = "<form><input type='text' name='username'>"
+				+ "<INPUT value=\"t0k\" type=\"hidden\" name=\"_token\" /></form>";
+		Assert.assertEquals(FixtureClient.extractCsrfToken(html, "_token"), "t0k");
+	}
+
+	private FixtureClient newClient() {
+		Set<Cookie> cookies = new HashSet<Cookie>();
+		cookies.add(new Cookie("orangehrm", "session1", "127.0.0.1", "/", null));
+		return new FixtureClient(baseUrl, cookies);
+	}
+
+	private Request findRequest(String method, String path) {
+		for (Request request : requests) {
+			if (request.method.equals(method) && request.path.equals(path)) {
+				return request;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Answers like OrangeHRM 5: the employee endpoint needs the current session
+	 * cookie and renews it with each response, and pages without a session
+	 * redirect to the login form
+	 */
+	private class StubHandler implements HttpHandler {
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			Request request = new Request(exchange);
+			requests.add(request);
+			String path = request.path;
+			String session = "orangehrm=session" + sessions.get();
+			if (path.equals("/leak")) {
+				exchange.getResponseHeaders().add("Location", "http://localhost:" + server.getAddress().getPort()
+						+ "/capture");
+				send(exchange, 302, "");
+			} else if (path.equals("/capture")) {
+				exchange.getResponseHeaders().add("Set-Cookie", "foreign=1; Path=/");
+				send(exchange, 200, "captured");
+			} else if (path.equals(LOGIN_PATH)) {
+				send(exchange, 200, LOGIN_FORM);
+			} else if (path.equals(EMPLOYEES_PATH) && request.method.equals("POST")) {
+				if (!request.cookie.contains(session)) {
+					send(exchange, 401, "{\"error\":{\"status\":\"401\",\"message\":\"Session expired\"}}");
+				} else if (request.json == null || request.json.get("firstName").getAsString().isEmpty()) {
+					send(exchange, 422, "{\"error\":{\"status\":\"422\",\"message\":\"Invalid Parameter\"}}");
+				} else {
+					exchange.getResponseHeaders().add("Set-Cookie",
+							"orangehrm=session" + sessions.incrementAndGet() + "; path=/web; HttpOnly");
+					exchange.getResponseHeaders().add("Set-Cookie", "other=1; Domain=example.com; Path=/");
+					send(exchange, 200, "{\"data\":{\"empNumber\":" + empNumbers.getAndIncrement()
+							+ ",\"lastName\":\"" + request.json.get("lastName").getAsString()
+							+ "\",\"terminationId\":null},\"meta\":[],\"rels\":[]}");
+				}
+			} else if (!request.cookie.contains(session)) {
+				exchange.getResponseHeaders().add("Location", LOGIN_PATH);
+				send(exchange, 302, "");
+			} else {
+				send(exchange, 404, "Not found");
+			}
+		}
+
+		private void send(HttpExchange exchange, int status, String body) throws IOException {
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+			if (bytes.length > 0) {
+				OutputStream out = exchange.getResponseBody();
+				out.write(bytes);
+				out.close();
+			}
+			exchange.close();
+		}
+	}
+
+	private static class Request {
+		Request(HttpExchange exchange) throws IOException {
+			method = exchange.getRequestMethod();
+			path = exchange.getRequestURI().getPath();
+			String header = exchange.getRequestHeaders().getFirst("Cookie");
+			cookie = header == null ? "" : header;
+			InputStream in = exchange.getRequestBody();
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			for (int read; (read = in.read(buffer)) != -1;) {
+				body.write(buffer, 0, read);
+			}
+			contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+			json = contentType != null && contentType.startsWith("application/json")
+					? new Gson().fromJson(new String(body.toByteArray(), StandardCharsets.UTF_8), JsonObject.class)
+					: null;
+		}
+
+		final String method;
+		final String path;
+		final String cookie;
+		final String contentType;
+		final JsonObject json;
+	}
+
+	private HttpServer server;
+	private String baseUrl;
+	private final List<Request> requests = new CopyOnWriteArrayList<Request>();
+	private final AtomicInteger sessions = new AtomicInteger();
+	private final AtomicInteger empNumbers = new AtomicInteger();
+
+	private static final String EMPLOYEES_PATH = "/web/index.php/api/v2/pim/employees";
+	private static final String LOGIN_PATH = "/web/index.php/auth/login";
+	private static final String CSRF_TOKEN = "5f2c9a7e01b4";
+	private static final String LOGIN_FORM = "<form class=\"orangehrm-login-form\" method=\"post\">"
+			+ "<input type=\"hidden\" name=\"_token\" value=\"" + CSRF_TOKEN + "\" />"
+			+ "<input name=\"username\" /><input type=\"password\" name=\"password\" /></form>";
+}
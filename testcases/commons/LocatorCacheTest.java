@@ -0,0 +1,128 @@
+package commons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LocatorCacheTest {
+
+	@BeforeMethod
+	public void clearCache() {
+		cache.clear();
+	}
+
+	@Test
+	public void repeatedLookupReturnsTheCachedBy() {
+		By first = cache.getBy(TWO_PARAMS, "Employee", "Save");
+		long hits = cache.getHitCount();
+		Assert.assertSame(cache.getBy(TWO_PARAMS, "Employee", "Save"), first);
+		Assert.assertEquals(cache.getHitCount(), hits + 1);
+		Assert.assertNotSame(cache.getBy(TWO_PARAMS, "Employee", "Cancel"), first);
+		Assert.assertSame(cache.getBy(STATIC), cache.getBy(STATIC));
+	}
+
+	@Test
+	public void lookupMatchesTheFormattedLocator() {
+		Assert.assertEquals(cache.getBy(TWO_PARAMS, "Employee", "Save"),
+				XPathToCss.toBy(String.format(TWO_PARAMS, "Employee", "Save")));
+		Assert.assertEquals(cache.getBy(ONE_PARAM, (String) null), XPathToCss.toBy(String.format(ONE_PARAM, "null")));
+	}
+
+	@Test
+	public void sameTemplateWithAnotherNumberOfParameters() {
+		By one = cache.getBy(ONE_PARAM, "firstName");
+		By two = cache.getBy(ONE_PARAM, "firstName", "ignored");
+		Assert.assertEquals(one, two);
+		Assert.assertSame(cache.getBy(ONE_PARAM, "firstName"), one);
+	}
+
+	@Test
+	public void sizeStaysBounded() {
+		for (int i = 0; i < GlobalConstants.LOCATOR_CACHE_SIZE * 3; i++) {
+			cache.getBy(ONE_PARAM, "id" + i);
+			Assert.assertTrue(cache.size() <= GlobalConstants.LOCATOR_CACHE_SIZE);
+		}
+	}
+
+	@Test
+	public void recentlyUsedLocatorSurvivesEviction() {
+		By used = cache.getBy(ONE_PARAM, "firstName");
+		for (int i = 0; i < GlobalConstants.LOCATOR_CACHE_SIZE * 3; i++) {
+			cache.getBy(ONE_PARAM, "id" + i);
+			Assert.assertSame(cache.getBy(ONE_PARAM, "firstName"), used, "evicted after " + i + " lookups");
+		}
+	}
+
+	@Test
+	public void workingSetSmallerThanTheCacheKeepsHitting() {
+		int workingSet = GlobalConstants.LOCATOR_CACHE_SIZE / 8;
+		for (int i = 0; i < workingSet; i++) {
+			cache.getBy(ONE_PARAM, "field" + i);
+		}
+		long misses = cache.getMissCount();
+		// more one-off locators, used once, than the cache holds
+		int rounds = 10;
+		for (int round = 0; round < rounds; round++) {
+			for (int i = 0; i < workingSet; i++) {
+				cache.getBy(ONE_PARAM, "field" + i);
+				cache.getBy(TWO_PARAMS, "round" + round, "item" + i);
+				cache.getBy(TWO_PARAMS, "round" + round, "link" + i);
+			}
+		}
+		Assert.assertEquals(cache.getMissCount() - misses, rounds * workingSet * 2, "only the one-off locators miss");
+	}
+
+	@Test
+	public void parallelLookupsAgree() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<List<By>>> tasks = new ArrayList<Callable<List<By>>>();
+			for (int t = 0; t < 8; t++) {
+				tasks.add(new Callable<List<By>>() {
+					@Override
+					public List<By> call() {
+						List<By> bys = new ArrayList<By>();
+						for (int i = 0; i < 500; i++) {
+							bys.add(cache.getBy(TWO_PARAMS, "menu" + (i % 50), "item" + (i % 7)));
+						}
+						return bys;
+					}
+				});
+			}
+			List<By> expected = null;
+			for (Future<List<By>> result : executor.invokeAll(tasks)) {
+				if (expected == null) {
+					expected = result.get();
+				} else {
+					Assert.assertEquals(result.get(), expected);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void zeroArgumentIndexIsRejected() {
+		try {
+			LocatorTemplate.parse("//div[@id='%0$s']");
+			Assert.fail("%0$s must be rejected");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("start at 1"), e.getMessage());
+		}
+	}
+
+	private static final String STATIC = "//input[@id='btnSave']";
+	private static final String ONE_PARAM = "//input[@id='%s']";
+	private static final String TWO_PARAMS = "//div[@id='%s']//input[@value='%s']";
+
+	private final LocatorCache cache = LocatorCache.getLocatorCache();
+}
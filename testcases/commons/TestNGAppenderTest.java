@@ -0,0 +1,148 @@
+package commons;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+public class TestNGAppenderTest {
+
+	@Test
+	public void flushWritesEveryLineToTheTestResult() {
+		TestNGAppender appender = newAppender();
+		try {
+			ITestResult result = Reporter.getCurrentTestResult();
+			for (int i = 0; i < 500; i++) {
+				appender.doAppend(event("line " + i));
+			}
+			Assert.assertTrue(appender.flush(5000));
+			Assert.assertEquals(countLines(result, "line "), 500);
+		} finally {
+			appender.close();
+		}
+	}
+
+	@Test
+	public void closedAppenderDropsNewEvents() {
+		TestNGAppender appender = newAppender();
+		ITestResult result = Reporter.getCurrentTestResult();
+		appender.doAppend(event("before close"));
+		appender.close();
+		appender.doAppend(event("after close"));
+		Assert.assertEquals(countLines(result, "before close"), 1);
+		Assert.assertEquals(countLines(result, "after close"), 0);
+	}
+
+	@Test
+	public void failingEventDoesNotStopTheConsumer() {
+		TestNGAppender appender = newAppender();
+		appender.setLayout(new PatternLayout("%m") {
+			@Override
+			public String format(LoggingEvent event) {
+				if ("boom".equals(event.getMessage())) {
+					throw new IllegalStateException("layout failed");
+				}
+				return super.format(event);
+			}
+		});
+		try {
+			ITestResult result = Reporter.getCurrentTestResult();
+			appender.doAppend(event("boom"));
+			for (int i = 0; i < 50; i++) {
+				appender.doAppend(event("after " + i));
+			}
+			Assert.assertTrue(appender.flush(5000), "the consumer stopped");
+			Assert.assertEquals(countLines(result, "after "), 50);
+			Assert.assertEquals(appender.getDroppedCount(), 1);
+		} finally {
+			appender.close();
+		}
+	}
+
+	@Test
+	public void appenderStaysOpenAfterASuite() {
+		TestNGAppender appender = newAppender();
+		try {
+			ITestResult result = Reporter.getCurrentTestResult();
+			appender.doAppend(event("first suite"));
+			TestNGAppender.finishSuite();
+			Reporter.setCurrentTestResult(result);
+			appender.doAppend(event("second suite"));
+			Assert.assertTrue(appender.flush(5000));
+			Assert.assertEquals(countLines(result, "first suite"), 1);
+			Assert.assertEquals(countLines(result, "second suite"), 1);
+		} finally {
+			appender.close();
+		}
+	}
+
+	@Test
+	public void dropInfoPolicyKeepsWarnings() throws InterruptedException {
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		TestNGAppender appender = new TestNGAppender();
+		appender.setBufferSize(1);
+		appender.setOverflowPolicy("DROP_INFO");
+		appender.setLayout(new PatternLayout("%m") {
+			@Override
+			public String format(LoggingEvent event) {
+				if ("slow".equals(event.getMessage())) {
+					writing.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.format(event);
+			}
+		});
+		appender.activateOptions();
+		try {
+			appender.doAppend(event("slow"));
+			Assert.assertTrue(writing.await(5, TimeUnit.SECONDS));
+			appender.doAppend(event("buffered"));
+			// the buffer is full
+			appender.doAppend(event("info"));
+			Assert.assertEquals(appender.getDroppedCount(), 1);
+			release.countDown();
+			appender.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.WARN, "warning", null));
+			Assert.assertTrue(appender.flush(5000));
+			Assert.assertEquals(countLines(Reporter.getCurrentTestResult(), "warning"), 1);
+		} finally {
+			release.countDown();
+			appender.close();
+		}
+	}
+
+	private static TestNGAppender newAppender() {
+		TestNGAppender appender = new TestNGAppender();
+		appender.setLayout(new PatternLayout("%m"));
+		appender.setBufferSize(16);
+		appender.activateOptions();
+		return appender;
+	}
+
+	private static LoggingEvent event(String message) {
+		return new LoggingEvent(Logger.class.getName(), logger, Level.INFO, message, null);
+	}
+
+	private static int countLines(ITestResult result, String prefix) {
+		int count = 0;
+		for (String line : Reporter.getOutput(result)) {
+			if (line.startsWith(prefix)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static final Logger logger = Logger.getLogger(TestNGAppenderTest.class);
+}
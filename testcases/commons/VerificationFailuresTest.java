@@ -0,0 +1,111 @@
+package commons;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.Test;
+
+public class VerificationFailuresTest {
+
+	/**
+	 * THREADS threads add FAILURES failures to their own test and to a test
+	 * shared by all of them, then consume their own test
+	 */
+	@Test
+	public void parallelFailuresAreNeitherLostNorMixed() throws Exception {
+		final VerificationFailures store = VerificationFailures.getFailures();
+		final ITestResult shared = newResult();
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int t = 0; t < THREADS; t++) {
+				final int thread = t;
+				results.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						ITestResult own = newResult();
+						start.await();
+						for (int i = 0; i < FAILURES; i++) {
+							store.addFailureForTest(own, new AssertionError(thread + ":" + i));
+							store.addFailureForTest(shared, new AssertionError(thread + ":" + i));
+						}
+						List<Throwable> failures = store.removeFailuresForTest(own);
+						Assert.assertEquals(failures.size(), FAILURES);
+						for (int i = 0; i < FAILURES; i++) {
+							Assert.assertEquals(failures.get(i).getMessage(), thread + ":" + i);
+						}
+						return null;
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		List<Throwable> sharedFailures = store.removeFailuresForTest(shared);
+		Assert.assertEquals(sharedFailures.size(), THREADS * FAILURES);
+		// every consumed test left the store
+		Assert.assertEquals(store.size(), 0);
+		Assert.assertTrue(store.removeFailuresForTest(shared).isEmpty());
+	}
+
+	@Test
+	public void failuresOfAnotherTestAreNotReturned() {
+		VerificationFailures store = VerificationFailures.getFailures();
+		ITestResult first = newResult();
+		ITestResult second = newResult();
+		store.addFailureForTest(first, new AssertionError("first"));
+		Assert.assertTrue(store.getFailuresForTest(second).isEmpty());
+		Assert.assertEquals(store.removeFailuresForTest(first).size(), 1);
+	}
+
+	@Test
+	public void mapViewSharesTheStore() {
+		Map<ITestResult, List<Throwable>> store = VerificationFailures.getFailures();
+		ITestResult result = newResult();
+		VerificationFailures.getFailures().addFailureForTest(result, new AssertionError("added"));
+		Assert.assertTrue(store.containsKey(result));
+		Assert.assertEquals(store.get(result).size(), 1);
+		store.remove(result);
+		Assert.assertTrue(VerificationFailures.getFailures().getFailuresForTest(result).isEmpty());
+	}
+
+	/**
+	 * @return a result that is only equal to itself, like the results of TestNG
+	 */
+	private static ITestResult newResult() {
+		return (ITestResult) Proxy.newProxyInstance(ITestResult.class.getClassLoader(),
+				new Class<?>[] { ITestResult.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("equals")) {
+							return proxy == args[0];
+						} else if (method.getName().equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						} else if (method.getName().equals("toString")) {
+							return "result@" + Integer.toHexString(System.identityHashCode(proxy));
+						}
+						return null;
+					}
+				});
+	}
+
+	private static final int THREADS = 32;
+	private static final int FAILURES = 2000;
+}